@@ -18,6 +18,7 @@
 package eagle.jfaster.org.cluster;
 
 import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.config.common.MethodPolicies;
 import eagle.jfaster.org.rpc.Refer;
 import eagle.jfaster.org.rpc.Request;
 import eagle.jfaster.org.spi.Scope;
@@ -41,6 +42,10 @@ public interface ReferCluster<T> {
 
     void setHaStrategy(HaStrategy<T> haStrategy);
 
+    void setMethodPolicies(MethodPolicies methodPolicies);
+
+    MethodPolicies getMethodPolicies();
+
     void refresh(List<Refer<T>> referers);
 
     List<Refer<T>> getRefers();
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.cluster.cluster;
+
+import eagle.jfaster.org.rpc.Refer;
+import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.spi.SpiInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 同时调用所有可用的refer，全部成功后经merger合并返回，任一失败则调用失败
+ *
+ * Created by fangyanpeng on 2018/4/23.
+ */
+@SpiInfo(name = "broadcast")
+public class BroadcastReferCluster<T> extends ForkingReferCluster<T> {
+
+    @Override
+    protected List<Refer<T>> selectTargets(Request request) {
+        List<Refer<T>> refers = getRefers();
+        if (refers == null) {
+            return new ArrayList<>(0);
+        }
+        List<Refer<T>> targets = new ArrayList<>(refers.size());
+        for (Refer<T> refer : refers) {
+            if (refer.isAlive()) {
+                targets.add(refer);
+            }
+        }
+        return targets;
+    }
+
+    @Override
+    protected int requiredSuccess(int targets) {
+        return targets;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.cluster.cluster;
+
+import eagle.jfaster.org.cluster.Merger;
+import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.config.common.MethodPolicy;
+import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.exception.EagleTimeoutException;
+import eagle.jfaster.org.logging.InternalLogger;
+import eagle.jfaster.org.logging.InternalLoggerFactory;
+import eagle.jfaster.org.rpc.Refer;
+import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.rpc.support.EagleRequest;
+import eagle.jfaster.org.spi.SpiClassLoader;
+import eagle.jfaster.org.spi.SpiInfo;
+import eagle.jfaster.org.util.ExceptionUtil;
+import eagle.jfaster.org.util.RequestUtil;
+import eagle.jfaster.org.util.UtilityUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 同时调用forks个refer，拿到forkSuccess个成功结果后经merger合并返回，
+ * 在请求超时时间内拿不到足够的成功结果则调用失败，结束时放弃还没返回的调用。只支持同步调用
+ *
+ * Created by fangyanpeng on 2018/4/23.
+ */
+@SpiInfo(name = "forking")
+public class ForkingReferCluster<T> extends AbstractReferCluster<T> {
+
+    private final static InternalLogger logger = InternalLoggerFactory.getInstance(ForkingReferCluster.class);
+
+    // 同时在途的fork调用数上限
+    private static final int FORK_MAX_THREAD = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+    private static final ThreadPoolExecutor forkExecutor = new ThreadPoolExecutor(FORK_MAX_THREAD, FORK_MAX_THREAD, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new UtilityUtil.DefaultThreadFactory("EagleForkThread", true));
+
+    static {
+        forkExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void init() {
+        if (config.getInvokeCallBack() != null) {
+            throw new EagleFrameException("%s cluster not support async refer: %s", getClass().getSimpleName(), config.identity());
+        }
+        super.init();
+    }
+
+    @Override
+    public Object call(Request request) {
+        try {
+            List<Refer<T>> targets = selectTargets(request);
+            if (targets.isEmpty()) {
+                throw new EagleFrameException("No alive refers to request,interfaceName:%s", request.getInterfaceName());
+            }
+            List<Object> results = fanOut(request, targets, requiredSuccess(targets.size()));
+            Merger merger = SpiClassLoader.getClassLoader(Merger.class).getExtension(config.getExt(ConfigEnum.merger.getName(), ConfigEnum.merger.getValue()));
+            return merger.merge(results);
+        } catch (Throwable e) {
+            return dealCallFail(request, e);
+        }
+    }
+
+    /**
+     * 通过负载均衡选出forks个不同的refer
+     */
+    protected List<Refer<T>> selectTargets(Request request) {
+        int forks = Math.max(config.getExtInt(ConfigEnum.forks.getName(), ConfigEnum.forks.getIntValue()), 1);
+        List<Refer<T>> targets = new ArrayList<>(forks);
+        for (int i = 0; i < forks * 2 && targets.size() < forks; i++) {
+            Refer<T> refer = loadBalance.select(request);
+            if (!targets.contains(refer)) {
+                targets.add(refer);
+            }
+        }
+        return targets;
+    }
+
+    protected int requiredSuccess(int targets) {
+        int required = config.getExtInt(ConfigEnum.forkSuccess.getName(), ConfigEnum.forkSuccess.getIntValue());
+        return Math.max(Math.min(required, targets), 1);
+    }
+
+    /**
+     * 并行调用所有目标，返回最先成功的required个结果，返回或失败时放弃还在等待的调用。
+     * 线程池满时剩下的目标在调用线程上依次执行，和并行的调用共用同一个截止时间
+     */
+    protected List<Object> fanOut(Request request, List<Refer<T>> targets, int required) throws InterruptedException {
+        MethodPolicy policy = request.getPolicy();
+        long timeout = policy != null ? policy.getRequestTimeout() : config.runtime().getRequestTimeout();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        long deadlineMillis = System.currentTimeMillis() + timeout;
+        BlockingQueue<Fork> completed = new LinkedBlockingQueue<>();
+        List<Fork> forks = new ArrayList<>(targets.size());
+        List<Fork> rejected = null;
+        try {
+            for (int i = 0; i < targets.size(); i++) {
+                // 同时在途的请求需要不同的opaque
+                Fork fork = new Fork(targets.get(i), i == 0 ? request : RequestUtil.copyRequest(request), completed);
+                forks.add(fork);
+                try {
+                    forkExecutor.execute(fork);
+                } catch (RejectedExecutionException e) {
+                    if (rejected == null) {
+                        rejected = new ArrayList<>();
+                    }
+                    rejected.add(fork);
+                }
+            }
+            List<Object> results = new ArrayList<>(required);
+            int failed = 0;
+            int inline = 0;
+            Throwable lastError = null;
+            while (results.size() < required) {
+                if (targets.size() - failed < required) {
+                    throw ExceptionUtil.handleException(lastError);
+                }
+                Fork done = completed.poll();
+                //没有已完成的结果时先在调用线程上执行被拒绝的目标，结果够了就不再执行
+                if (done == null && rejected != null && inline < rejected.size()) {
+                    Fork fork = rejected.get(inline++);
+                    if (System.nanoTime() >= deadline) {
+                        fork.fail(new EagleTimeoutException("%s cluster deadline exceeded before fork, interface: %s", getClass().getSimpleName(), request.getInterfaceName()));
+                    } else {
+                        fork.limit(deadlineMillis);
+                        fork.run();
+                    }
+                    continue;
+                }
+                if (done == null) {
+                    done = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+                if (done == null) {
+                    throw new EagleTimeoutException("%s cluster wait %d success timeout, got %d, interface: %s", getClass().getSimpleName(), required, results.size(), request.getInterfaceName());
+                }
+                if (done.error == null) {
+                    results.add(done.value);
+                } else {
+                    failed++;
+                    lastError = done.error;
+                    logger.warn(String.format("%s call fail for interface: '%s',cause: '%s'", getClass().getSimpleName(), request.getInterfaceName(), lastError.getMessage()));
+                }
+            }
+            return results;
+        } finally {
+            for (Fork fork : forks) {
+                if (!fork.done) {
+                    fork.cancel();
+                }
+            }
+        }
+    }
+
+    private static class Fork implements Runnable {
+
+        private final Refer<?> refer;
+
+        private final Request request;
+
+        private final BlockingQueue<Fork> completed;
+
+        private Object value;
+
+        private Throwable error;
+
+        //value和error在done之前写入，通过completed队列发布给调用线程
+        private volatile boolean done;
+
+        private Fork(Refer<?> refer, Request request, BlockingQueue<Fork> completed) {
+            this.refer = refer;
+            this.request = request;
+            this.completed = completed;
+        }
+
+        @Override
+        public void run() {
+            try {
+                value = refer.request(request);
+            } catch (Throwable e) {
+                error = e;
+            }
+            done = true;
+            completed.add(this);
+        }
+
+        /**
+         * 在调用线程上执行时，把请求自身的超时限制在整体截止时间内
+         */
+        private void limit(long deadlineMillis) {
+            if (request instanceof EagleRequest && (request.getDeadline() <= 0 || request.getDeadline() > deadlineMillis)) {
+                ((EagleRequest) request).setDeadline(deadlineMillis);
+            }
+        }
+
+        private void fail(Throwable e) {
+            error = e;
+            done = true;
+            completed.add(this);
+        }
+
+        private void cancel() {
+            refer.cancel(request);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import eagle.jfaster.org.cluster.LoadBalance;
 import eagle.jfaster.org.cluster.ReferCluster;
 import eagle.jfaster.org.config.ConfigEnum;
 import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.config.common.MethodPolicies;
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
@@ -87,6 +88,7 @@ public class ReferClusterManage<T> implements ServiceChangeListener {
         cluster.setConfig(refConfig);
         cluster.setLoadBalance(loadBalance);
         cluster.setHaStrategy(haStrategy);
+        cluster.setMethodPolicies(MethodPolicies.compile(refConfig, interfaceClass));
         cluster.init();
     }
 
@@ -159,6 +161,7 @@ public class ReferClusterManage<T> implements ServiceChangeListener {
     @Override
     public synchronized void refChange(MergeConfig registryConfig, MergeConfig refConfig) {
         this.refConfig.update(refConfig);
+        cluster.setMethodPolicies(MethodPolicies.compile(this.refConfig, interfaceClass));
         RegistryCenterManage registryManage = SpiClassLoader.getClassLoader(RegistryCenterManage.class).getExtension(registryConfig.getProtocol());
         List<MergeConfig> configs = registryManage.getRegisterServices(registryConfig, refConfig);
         if (CollectionUtil.isEmpty(configs)) {
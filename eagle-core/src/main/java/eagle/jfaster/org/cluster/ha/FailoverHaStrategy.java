@@ -19,7 +19,7 @@
 package eagle.jfaster.org.cluster.ha;
 
 import eagle.jfaster.org.cluster.LoadBalance;
-import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.config.common.MethodPolicy;
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
@@ -37,7 +37,8 @@ public class FailoverHaStrategy<T> extends AbstractHaStrategy<T> {
 
     @Override
     public Object call(Request request, LoadBalance<T> loadBalance) {
-        int retry = config.getExtInt(ConfigEnum.retries.getName(), ConfigEnum.retries.getIntValue());
+        MethodPolicy policy = request.getPolicy();
+        int retry = policy != null ? policy.getRetries() : config.runtime().getRetries();
         retry = retry < 0 ? 1 : retry;
         for (int i = 0; i <= retry; ++i) {
             Refer<T> refer = loadBalance.select(request);
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.cluster.ha;
+
+import eagle.jfaster.org.cluster.LoadBalance;
+import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.config.common.MethodPolicy;
+import eagle.jfaster.org.exception.EagleCancelledException;
+import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.logging.InternalLogger;
+import eagle.jfaster.org.logging.InternalLoggerFactory;
+import eagle.jfaster.org.rpc.Refer;
+import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.spi.SpiInfo;
+import eagle.jfaster.org.util.ExceptionUtil;
+import eagle.jfaster.org.util.RequestUtil;
+import eagle.jfaster.org.util.UtilityUtil;
+
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对冲请求：幂等方法的请求在等待时间内没有返回时，向另一个refer再发一次，取先返回的结果。
+ * 等待时间可以配置，不配置时取方法最近响应时间的p95；对冲请求数不超过请求数的hedgeBudget%，
+ * 非幂等方法和异步调用与failfast相同。
+ * 首个请求在调用线程上执行，到时由定时线程把对冲请求交给有上限的线程池，线程池满时不再对冲；
+ * 先成功的一方通过refer放弃另一方，不中断线程
+ *
+ * Created by fangyanpeng on 2018/4/22.
+ */
+@SpiInfo(name = "hedged")
+public class HedgedHaStrategy<T> extends AbstractHaStrategy<T> {
+
+    private final static InternalLogger logger = InternalLoggerFactory.getInstance(HedgedHaStrategy.class);
+
+    // 对冲请求的最大并发数，超过时不再对冲
+    private static final int HEDGE_MAX_THREAD = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+    private static final ScheduledThreadPoolExecutor hedgeTimer = new ScheduledThreadPoolExecutor(1, new UtilityUtil.DefaultThreadFactory("EagleHedgeTimer", true));
+
+    private static final ThreadPoolExecutor hedgeExecutor = new ThreadPoolExecutor(HEDGE_MAX_THREAD, HEDGE_MAX_THREAD, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new UtilityUtil.DefaultThreadFactory("EagleHedgeThread", true));
+
+    static {
+        hedgeTimer.setRemoveOnCancelPolicy(true);
+        hedgeExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    // 预算以百分之一个请求为单位，最多攒下100个对冲请求
+    private static final long MAX_BUDGET = 100 * 100;
+
+    private final AtomicLong budget = new AtomicLong(0);
+
+    private final ConcurrentMap<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    @Override
+    public Object call(Request request, LoadBalance<T> loadBalance) {
+        MethodPolicy policy = request.getPolicy();
+        Refer<T> first = loadBalance.select(request);
+        if (policy == null || !policy.isIdempotent() || config.getInvokeCallBack() != null) {
+            return first.request(request);
+        }
+        LatencyWindow window = getWindow(policy.getMethodDesc());
+        deposit();
+        long delay = policy.getHedgeDelay() > 0 ? TimeUnit.MILLISECONDS.toNanos(policy.getHedgeDelay()) : window.getP95();
+        if (delay <= 0) {
+            return new Attempt(first, request, window, -1).call();
+        }
+        HedgedCall call = new HedgedCall(request, loadBalance, first, window, delay);
+        ScheduledFuture<?> timer = hedgeTimer.schedule(call, delay, TimeUnit.NANOSECONDS);
+        try {
+            return call.execute();
+        } finally {
+            timer.cancel(false);
+        }
+    }
+
+    private Refer<T> selectOther(Request request, LoadBalance<T> loadBalance, Refer<T> first) {
+        try {
+            for (int i = 0; i < 3; i++) {
+                Refer<T> refer = loadBalance.select(request);
+                if (refer != first) {
+                    return refer;
+                }
+            }
+        } catch (Throwable e) {
+            logger.warn(String.format("Hedged select fail for interface: '%s',cause: '%s'", request.getInterfaceName(), e.getMessage()));
+        }
+        return null;
+    }
+
+    private void deposit() {
+        int percent = Math.min(config.getExtInt(ConfigEnum.hedgeBudget.getName(), ConfigEnum.hedgeBudget.getIntValue()), 100);
+        if (percent <= 0 || budget.get() >= MAX_BUDGET) {
+            return;
+        }
+        budget.addAndGet(percent);
+    }
+
+    private void refund() {
+        budget.addAndGet(100);
+    }
+
+    private boolean withdraw() {
+        while (true) {
+            long current = budget.get();
+            if (current < 100) {
+                return false;
+            }
+            if (budget.compareAndSet(current, current - 100)) {
+                return true;
+            }
+        }
+    }
+
+    private LatencyWindow getWindow(String methodDesc) {
+        LatencyWindow window = windows.get(methodDesc);
+        if (window == null) {
+            LatencyWindow created = new LatencyWindow();
+            window = windows.putIfAbsent(methodDesc, created);
+            if (window == null) {
+                window = created;
+            }
+        }
+        return window;
+    }
+
+    /**
+     * 一次对冲调用，首个请求在调用线程上执行，run由定时线程在等待时间到达时调用，发出对冲请求
+     */
+    private class HedgedCall implements Runnable {
+
+        private final Request request;
+
+        private final LoadBalance<T> loadBalance;
+
+        private final Refer<T> first;
+
+        private final LatencyWindow window;
+
+        private final long delay;
+
+        //以下字段由this保护，finished表示已经有结果，不再发对冲请求也不再放弃首个请求
+        private boolean finished;
+
+        private Attempt hedge;
+
+        private boolean hedgeDone;
+
+        private Object hedgeValue;
+
+        private Throwable hedgeError;
+
+        private HedgedCall(Request request, LoadBalance<T> loadBalance, Refer<T> first, LatencyWindow window, long delay) {
+            this.request = request;
+            this.loadBalance = loadBalance;
+            this.first = first;
+            this.window = window;
+            this.delay = delay;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+            }
+            Refer<T> second = selectOther(request, loadBalance, first);
+            if (second == null || !withdraw()) {
+                return;
+            }
+            final Attempt attempt = new Attempt(second, RequestUtil.copyRequest(request), window, -1);
+            synchronized (this) {
+                if (finished) {
+                    refund();
+                    return;
+                }
+                hedge = attempt;
+            }
+            try {
+                hedgeExecutor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        runHedge(attempt);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refund();
+                synchronized (this) {
+                    hedge = null;
+                    notifyAll();
+                }
+            }
+        }
+
+        private void runHedge(Attempt attempt) {
+            Object value = null;
+            Throwable error = null;
+            try {
+                value = attempt.call();
+            } catch (Throwable e) {
+                error = e;
+                if (!(e instanceof EagleCancelledException)) {
+                    logger.warn(String.format("Hedged call fail for interface: '%s',cause: '%s'", request.getInterfaceName(), e.getMessage()));
+                }
+            }
+            boolean cancelFirst;
+            synchronized (this) {
+                hedgeDone = true;
+                hedgeValue = value;
+                hedgeError = error;
+                cancelFirst = error == null && !finished;
+                if (cancelFirst) {
+                    finished = true;
+                }
+                notifyAll();
+            }
+            if (cancelFirst) {
+                first.cancel(request);
+            }
+        }
+
+        private Object execute() {
+            Object value = null;
+            Throwable error = null;
+            try {
+                value = new Attempt(first, request, window, delay).call();
+            } catch (Throwable e) {
+                error = e;
+            }
+            Attempt loser = null;
+            boolean interrupted = false;
+            synchronized (this) {
+                if (error == null) {
+                    if (!finished && hedge != null && !hedgeDone) {
+                        loser = hedge;
+                    }
+                    finished = true;
+                } else {
+                    finished = true;
+                    //首个请求失败或者被放弃时，等待在途的对冲请求
+                    try {
+                        while (hedge != null && !hedgeDone) {
+                            wait();
+                        }
+                        if (hedge != null && hedgeError == null) {
+                            return hedgeValue;
+                        }
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        loser = hedge;
+                    }
+                }
+            }
+            if (loser != null) {
+                loser.cancel();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                throw new EagleFrameException("Hedged call interrupted, interface: %s", request.getInterfaceName());
+            }
+            if (error != null) {
+                throw ExceptionUtil.handleException(error);
+            }
+            return value;
+        }
+    }
+
+    private static class Attempt {
+
+        private final Refer<?> refer;
+
+        private final Request request;
+
+        private final LatencyWindow window;
+
+        // 被放弃时按至少这个耗时计入窗口，小于0时不计入
+        private final long cancelledNanos;
+
+        private Attempt(Refer<?> refer, Request request, LatencyWindow window, long cancelledNanos) {
+            this.refer = refer;
+            this.request = request;
+            this.window = window;
+            this.cancelledNanos = cancelledNanos;
+        }
+
+        private Object call() {
+            long start = System.nanoTime();
+            try {
+                Object result = refer.request(request);
+                window.record(System.nanoTime() - start);
+                return result;
+            } catch (EagleCancelledException e) {
+                //首个请求输给对冲请求时耗时至少是等待时间，只统计赢家会让p95越来越小，对冲越来越频繁
+                if (cancelledNanos >= 0) {
+                    window.record(Math.max(System.nanoTime() - start, cancelledNanos));
+                }
+                throw e;
+            }
+        }
+
+        private void cancel() {
+            refer.cancel(request);
+        }
+    }
+
+    /**
+     * 最近若干次调用的耗时（包括输给对冲请求的首个请求），每记录一批重新计算一次p95，样本不足时为0
+     */
+    private static class LatencyWindow {
+
+        private static final int SIZE = 128;
+
+        private static final int MIN_SAMPLES = 16;
+
+        private final long[] samples = new long[SIZE];
+
+        // 用long计数，避免溢出后样本数判断失效
+        private final AtomicLong cursor = new AtomicLong(0);
+
+        private volatile long p95;
+
+        void record(long nanos) {
+            long count = cursor.getAndIncrement();
+            samples[(int) (count & (SIZE - 1))] = nanos;
+            if (count + 1 >= MIN_SAMPLES && (count & (MIN_SAMPLES - 1)) == MIN_SAMPLES - 1) {
+                long[] sorted = Arrays.copyOf(samples, (int) Math.min(count + 1, SIZE));
+                Arrays.sort(sorted);
+                p95 = sorted[(int) (sorted.length * 0.95)];
+            }
+        }
+
+        long getP95() {
+            return p95;
+        }
+    }
+}
@@ -20,43 +20,88 @@ package eagle.jfaster.org.cluster.loadbalance;
 import eagle.jfaster.org.cluster.LoadBalance;
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.rpc.Refer;
+import eagle.jfaster.org.rpc.ReferStateListener;
 import eagle.jfaster.org.rpc.Request;
 
 import java.util.List;
 
 /**
+ * 选择只读取路由快照，refer列表变化或refer可用状态变化时重建快照
+ *
  * Created by fangyanpeng1 on 2017/8/4.
  */
-public abstract class AbstractLoadBalance<T> implements LoadBalance<T> {
+public abstract class AbstractLoadBalance<T> implements LoadBalance<T>, ReferStateListener {
 
     public static final int MAX_REFER_COUNT = 10;
 
-    protected List<Refer<T>> refers;
+    private volatile RoutingTable<T> routing = RoutingTable.build(null);
+
+    @Override
+    public synchronized void refresh(List<Refer<T>> refers) {
+        for (Refer<T> refer : routing.getRefers()) {
+            refer.removeStateListener(this);
+        }
+        if (refers != null) {
+            for (Refer<T> refer : refers) {
+                refer.addStateListener(this);
+            }
+        }
+        route(RoutingTable.build(refers));
+    }
 
     @Override
-    public void refresh(List<Refer<T>> refers) {
-        this.refers = refers;
+    public synchronized void onStateChange() {
+        route(RoutingTable.build(routing.getRefers()));
+    }
+
+    private void route(RoutingTable<T> routing) {
+        onRoute(routing);
+        this.routing = routing;
+    }
+
+    /**
+     * 新快照发布前回调，子类在这里预先计算选择时用到的数据
+     */
+    protected void onRoute(RoutingTable<T> routing) {
+    }
+
+    protected RoutingTable<T> getRouting() {
+        return routing;
     }
 
     @Override
     public Refer<T> select(Request request) {
-        List<Refer<T>> refers = this.refers;
-        if (refers == null) {
-            throw new EagleFrameException("No alive refers to request,interfaceName:%s", request.getInterfaceName());
-        }
+        RoutingTable<T> routing = this.routing;
+        List<Refer<T>> aliveRefers = routing.getAliveRefers();
         Refer<T> refer = null;
-        if (refers.size() > 1) {
-            refer = doSelect(request);
-        } else if (refers.size() == 1 && refers.get(0).isAlive()) {
-            refer = refers.get(0);
+        if (aliveRefers.size() > 1) {
+            refer = doSelect(request, routing);
+        } else if (aliveRefers.size() == 1) {
+            refer = aliveRefers.get(0);
         }
         if (refer != null) {
-            return refer;
+            return refer.isAlive() ? refer : reselect(aliveRefers, refer);
         }
         throw new EagleFrameException("No alive refers to request,interfaceName:%s", request.getInterfaceName());
     }
 
-    public abstract Refer<T> doSelect(Request request);
+    /**
+     * 快照还没来得及重建时选中的refer可能已经不可用（比如半开的探测名额刚用完），
+     * 换一个当前可用的，都不可用时仍返回原来选中的
+     */
+    private Refer<T> reselect(List<Refer<T>> aliveRefers, Refer<T> selected) {
+        for (Refer<T> refer : aliveRefers) {
+            if (refer != selected && refer.isAlive()) {
+                return refer;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 从快照中至少两个可用的refer里选择一个
+     */
+    public abstract Refer<T> doSelect(Request request, RoutingTable<T> routing);
 
 
 }
@@ -27,7 +27,7 @@ import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * 低并发refer优先访问
+ * 低并发refer优先访问，按并发数占并发上限的比例比较
  *
  * Created by fangyanpeng1 on 2017/8/4.
  */
@@ -35,21 +35,15 @@ import java.util.concurrent.ThreadLocalRandom;
 public class ActiveWeigthLoadBalance<T> extends AbstractLoadBalance<T> {
 
     @Override
-    public Refer<T> doSelect(Request request) {
-        List<Refer<T>> refers = this.refers;
+    public Refer<T> doSelect(Request request, RoutingTable<T> routing) {
+        List<Refer<T>> refers = routing.getAliveRefers();
         int referSize = refers.size();
         int startIndex = ThreadLocalRandom.current().nextInt(referSize);
         int currentCursor = 0;
-        int currentAvailableCursor = 0;
         Refer<T> refer = null;
-        while (currentAvailableCursor < MAX_REFER_COUNT && currentCursor < referSize) {
+        while (currentCursor < MAX_REFER_COUNT && currentCursor < referSize) {
             Refer<T> temp = refers.get((startIndex + currentCursor) % referSize);
             currentCursor++;
-
-            if (!temp.isAlive()) {
-                continue;
-            }
-            currentAvailableCursor++;
             if (refer == null) {
                 refer = temp;
             } else {
@@ -63,7 +57,7 @@ public class ActiveWeigthLoadBalance<T> extends AbstractLoadBalance<T> {
     }
 
     private int compare(Refer<T> refer1, Refer<T> refer2) {
-        return refer1.getActiveCount() - refer2.getActiveCount();
+        return Long.compare((long) refer1.getActiveCount() * refer2.getConcurrentLimit(), (long) refer2.getActiveCount() * refer1.getConcurrentLimit());
     }
 
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.cluster.loadbalance;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.config.common.MethodPolicy;
+import eagle.jfaster.org.rpc.Refer;
+import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.spi.SpiInfo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static eagle.jfaster.org.constant.EagleConstants.CHARSET_UTF8;
+
+/**
+ * 一致性hash，按方法配置的参数计算key，相同参数的请求落到同一个refer上，refer不可用时顺时针找下一个存活的节点。
+ * 每个refer的虚拟节点在refer列表变化时才重新计算，环用有序数组存储，查找为二分，可用状态取自路由快照。
+ * 基本类型、字符串和枚举参数直接取字符串值，其他对象取json序列化后的内容，不依赖参数的toString
+ *
+ * Created by fangyanpeng on 2018/4/20.
+ */
+@SpiInfo(name = "consistenthash")
+public class ConsistentHashLoadBalance<T> extends AbstractLoadBalance<T> {
+
+    private static final HashFunction HASH = Hashing.murmur3_32();
+
+    private static final int[] DEFAULT_ARGUMENTS = {0};
+
+    private volatile Ring<T> ring;
+
+    //hostPort -> 虚拟节点的hash，只在onRoute中访问
+    private Map<String, int[]> virtualNodes = new HashMap<>();
+
+    @Override
+    protected void onRoute(RoutingTable<T> routing) {
+        List<Refer<T>> refers = routing.getRefers();
+        Ring<T> ring = this.ring;
+        // 只是可用状态变化时环不变
+        if (ring != null && ring.refers == refers) {
+            return;
+        }
+        Map<String, int[]> nodes = new HashMap<>(refers.size() * 2);
+        int total = 0;
+        for (Refer<T> refer : refers) {
+            String key = refer.getConfig().hostPort();
+            int nodeCount = refer.getConfig().getExtInt(ConfigEnum.hashNodes.getName(), ConfigEnum.hashNodes.getIntValue());
+            int[] hashes = virtualNodes.get(key);
+            if (hashes == null || hashes.length != nodeCount) {
+                hashes = new int[nodeCount];
+                for (int i = 0; i < nodeCount; i++) {
+                    hashes[i] = HASH.hashString(key + "#" + i, CHARSET_UTF8).asInt();
+                }
+            }
+            nodes.put(key, hashes);
+            total += hashes.length;
+        }
+        //高32位为hash，低32位为refer下标，排序后即为环上的顺序
+        long[] entries = new long[total];
+        int pos = 0;
+        for (int i = 0; i < refers.size(); i++) {
+            for (int hash : nodes.get(refers.get(i).getConfig().hostPort())) {
+                entries[pos++] = ((long) hash << 32) | i;
+            }
+        }
+        Arrays.sort(entries);
+        int[] hashes = new int[total];
+        int[] owners = new int[total];
+        for (int i = 0; i < total; i++) {
+            hashes[i] = (int) (entries[i] >> 32);
+            owners[i] = (int) entries[i];
+        }
+        this.virtualNodes = nodes;
+        this.ring = new Ring<>(refers, hashes, owners);
+    }
+
+    @Override
+    public Refer<T> doSelect(Request request, RoutingTable<T> routing) {
+        Ring<T> ring = this.ring;
+        // 环和快照不一致时（快照切换的瞬间）随机选择
+        if (ring == null || ring.refers != routing.getRefers()) {
+            List<Refer<T>> aliveRefers = routing.getAliveRefers();
+            return aliveRefers.get(ThreadLocalRandom.current().nextInt(aliveRefers.size()));
+        }
+        int length = ring.hashes.length;
+        int index = Arrays.binarySearch(ring.hashes, hash(request));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        for (int i = 0; i < length; i++) {
+            int owner = ring.owners[(index + i) % length];
+            if (routing.isAlive(owner)) {
+                return ring.refers.get(owner);
+            }
+        }
+        return null;
+    }
+
+    private int hash(Request request) {
+        MethodPolicy policy = request.getPolicy();
+        int[] arguments = policy != null ? policy.getHashArguments() : DEFAULT_ARGUMENTS;
+        Object[] parameters = request.getParameters();
+        Hasher hasher = HASH.newHasher();
+        for (int argument : arguments) {
+            if (parameters != null && argument < parameters.length) {
+                hasher.putString(key(parameters[argument]), CHARSET_UTF8);
+            }
+            hasher.putByte((byte) 0);
+        }
+        return hasher.hash().asInt();
+    }
+
+    private static String key(Object param) {
+        if (param == null || param instanceof CharSequence || param instanceof Number || param instanceof Boolean
+                || param instanceof Character || param instanceof Enum) {
+            return String.valueOf(param);
+        }
+        return JSON.toJSONString(param, SerializerFeature.MapSortField);
+    }
+
+    private static class Ring<T> {
+
+        private final List<Refer<T>> refers;
+
+        private final int[] hashes;
+
+        //虚拟节点所属refer在refers中的下标
+        private final int[] owners;
+
+        private Ring(List<Refer<T>> refers, int[] hashes, int[] owners) {
+            this.refers = refers;
+            this.hashes = hashes;
+            this.owners = owners;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.cluster.loadbalance;
+
+import eagle.jfaster.org.rpc.Refer;
+import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.spi.SpiInfo;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机选出两个存活的refer，取响应时间加权平均与并发数乘积较小的一个。
+ * 还没有耗时数据的refer有并发时给一个较大的惩罚值，避免新节点被瞬间打满，并发已达上限的refer排在最后
+ *
+ * Created by fangyanpeng on 2018/4/19.
+ */
+@SpiInfo(name = "p2c-ewma")
+public class P2cEwmaLoadBalance<T> extends AbstractLoadBalance<T> {
+
+    private static final double PENALTY = Integer.MAX_VALUE;
+
+    private static final double SATURATED = Long.MAX_VALUE;
+
+    @Override
+    public Refer<T> doSelect(Request request, RoutingTable<T> routing) {
+        List<Refer<T>> refers = routing.getAliveRefers();
+        int referSize = refers.size();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int firstIndex = random.nextInt(referSize);
+        int secondIndex = random.nextInt(referSize - 1);
+        if (secondIndex >= firstIndex) {
+            secondIndex++;
+        }
+        Refer<T> first = refers.get(firstIndex);
+        Refer<T> second = refers.get(secondIndex);
+        return score(first) <= score(second) ? first : second;
+    }
+
+    private double score(Refer<T> refer) {
+        long latency = refer.getLatency();
+        int active = refer.getActiveCount();
+        if (active >= refer.getConcurrentLimit()) {
+            return SATURATED;
+        }
+        if (latency == 0 && active > 0) {
+            return PENALTY + active;
+        }
+        return (double) latency * (active + 1);
+    }
+}
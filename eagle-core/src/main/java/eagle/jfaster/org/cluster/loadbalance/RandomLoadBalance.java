@@ -34,15 +34,8 @@ import java.util.concurrent.ThreadLocalRandom;
 public class RandomLoadBalance<T> extends AbstractLoadBalance<T> {
 
     @Override
-    public Refer<T> doSelect(Request request) {
-        List<Refer<T>> refers = this.refers;
-        int idx = ThreadLocalRandom.current().nextInt(refers.size());
-        for (int i = 0; i < refers.size(); i++) {
-            Refer<T> ref = refers.get((i + idx) % refers.size());
-            if (ref.isAlive()) {
-                return ref;
-            }
-        }
-        return null;
+    public Refer<T> doSelect(Request request, RoutingTable<T> routing) {
+        List<Refer<T>> refers = routing.getAliveRefers();
+        return refers.get(ThreadLocalRandom.current().nextInt(refers.size()));
     }
 }
@@ -17,75 +17,161 @@
 
 package eagle.jfaster.org.cluster.loadbalance;
 
-import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.config.common.RuntimeConfig;
+import eagle.jfaster.org.logging.InternalLogger;
+import eagle.jfaster.org.logging.InternalLoggerFactory;
 import eagle.jfaster.org.rpc.Refer;
 import eagle.jfaster.org.rpc.Request;
 import eagle.jfaster.org.spi.SpiInfo;
+import eagle.jfaster.org.util.UtilityUtil;
 
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static eagle.jfaster.org.constant.EagleConstants.WARMUP;
+import static eagle.jfaster.org.constant.EagleConstants.WARMUP_TICK;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 
 /**
- * 基于权重的负载算法
+ * 基于权重的负载算法，路由快照变化时按可用refer的权重预先生成alias表，选择为常数时间。
+ * 有refer在预热时由后台定时重算权重，预热全部结束后停止
  *
  * Created by fangyanpeng on 2017/8/20.
  */
 @SpiInfo(name = "weight")
 public class RandomWeightLoadBalance<T> extends AbstractLoadBalance<T> {
 
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(RandomWeightLoadBalance.class);
+
+    private static final ScheduledExecutorService warmupExecutor = Executors.newSingleThreadScheduledExecutor(new UtilityUtil.DefaultThreadFactory("EagleWarmupThread", true));
+
+    private volatile AliasTable<T> table;
+
+    private ScheduledFuture<?> warmupFuture;
+
     @Override
-    public Refer<T> doSelect(Request request) {
-        int length = refers.size(); // 总个数
-        int totalWeight = 0; // 总权重
-        boolean sameWeight = true; // 权重是否都一样
-        for (int i = 0; i < length; i++) {
-            int weight = getWeight(refers.get(i));
-            totalWeight += weight; // 累计总权重
-            if (sameWeight && i > 0 && weight != getWeight(refers.get(i - 1))) {
-                sameWeight = false; // 计算所有权重是否一样
-            }
-        }
-        if (totalWeight > 0 && !sameWeight) {
-            // 如果权重不相同且权重大于0则按总权重数随机
-            int offset = ThreadLocalRandom.current().nextInt(totalWeight);
-            // 并确定随机值落在哪个片断上
-            for (int i = 0; i < length; i++) {
-                Refer<T> refer = refers.get(i);
-                offset -= getWeight(refer);
-                if (offset < 0 && refer.isAlive()) {
-                    return refer;
+    protected void onRoute(RoutingTable<T> routing) {
+        if (rebuild(routing) && warmupFuture == null) {
+            warmupFuture = warmupExecutor.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    reweight();
                 }
-            }
+            }, WARMUP_TICK, WARMUP_TICK, MILLISECONDS);
         }
-        // 如果权重相同或权重为0则均等随机
-        int idx = ThreadLocalRandom.current().nextInt(length);
-        for (int i = 0; i < refers.size(); i++) {
-            Refer<T> ref = refers.get((i + idx) % refers.size());
-            if (ref.isAlive()) {
-                return ref;
+    }
+
+    private synchronized void reweight() {
+        try {
+            if (!rebuild(getRouting()) && warmupFuture != null) {
+                warmupFuture.cancel(false);
+                warmupFuture = null;
             }
+        } catch (Throwable e) {
+            logger.error("Reweight refers error", e);
         }
-        return null;
     }
 
-    protected int getWeight(Refer<T> refer) {
-        int weight = refer.getConfig().getExtInt(ConfigEnum.weight.getName(), ConfigEnum.weight.getIntValue());
-        if (weight > 0) {
-            long timestamp = refer.getConfig().getExtLong(ConfigEnum.refreshTimestamp.getName(), ConfigEnum.refreshTimestamp.getIntValue());
-            if (timestamp > 0L) {
-                int uptime = (int) (System.currentTimeMillis() - timestamp);
+    /**
+     * 按可用refer的当前权重重建alias表，返回是否还有refer在预热
+     */
+    private boolean rebuild(RoutingTable<T> routing) {
+        List<Refer<T>> refers = routing.getAliveRefers();
+        long now = System.currentTimeMillis();
+        int length = refers.size();
+        int[] weights = new int[length];
+        boolean warming = false;
+        for (int i = 0; i < length; i++) {
+            RuntimeConfig runtime = refers.get(i).getConfig().runtime();
+            int weight = runtime.getWeight();
+            long timestamp = runtime.getRefreshTimestamp();
+            if (weight > 0 && timestamp > 0L) {
+                int uptime = (int) (now - timestamp);
                 if (uptime > 0 && uptime < WARMUP) {
                     weight = calculateWarmupWeight(uptime, weight);
+                    warming = true;
                 }
             }
+            weights[i] = Math.max(weight, 0);
+        }
+        table = new AliasTable<>(routing, weights);
+        return warming;
+    }
+
+    @Override
+    public Refer<T> doSelect(Request request, RoutingTable<T> routing) {
+        List<Refer<T>> refers = routing.getAliveRefers();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int idx = random.nextInt(refers.size());
+        AliasTable<T> table = this.table;
+        // alias表和快照不一致时（快照切换的瞬间）均等随机
+        if (table == null || table.routing != routing) {
+            return refers.get(idx);
         }
-        return weight;
+        return refers.get(random.nextDouble() < table.prob[idx] ? idx : table.alias[idx]);
     }
 
     static int calculateWarmupWeight(int uptime, int weight) {
         int ww = (int) ((float) uptime / ((float) WARMUP / (float) weight));
         return ww < 1 ? 1 : (ww > weight ? weight : ww);
     }
+
+    /**
+     * Vose alias表，权重都为0时均等随机
+     */
+    private static class AliasTable<T> {
+
+        private final RoutingTable<T> routing;
+
+        private final double[] prob;
+
+        private final int[] alias;
+
+        private AliasTable(RoutingTable<T> routing, int[] weights) {
+            int length = weights.length;
+            this.routing = routing;
+            this.prob = new double[length];
+            this.alias = new int[length];
+            long totalWeight = 0;
+            for (int weight : weights) {
+                totalWeight += weight;
+            }
+            double[] scaled = new double[length];
+            int[] small = new int[length];
+            int[] large = new int[length];
+            int smallSize = 0;
+            int largeSize = 0;
+            for (int i = 0; i < length; i++) {
+                scaled[i] = totalWeight > 0 ? (double) weights[i] * length / totalWeight : 1D;
+                if (scaled[i] < 1D) {
+                    small[smallSize++] = i;
+                } else {
+                    large[largeSize++] = i;
+                }
+            }
+            while (smallSize > 0 && largeSize > 0) {
+                int s = small[--smallSize];
+                int l = large[--largeSize];
+                prob[s] = scaled[s];
+                alias[s] = l;
+                scaled[l] = scaled[l] + scaled[s] - 1D;
+                if (scaled[l] < 1D) {
+                    small[smallSize++] = l;
+                } else {
+                    large[largeSize++] = l;
+                }
+            }
+            while (largeSize > 0) {
+                prob[large[--largeSize]] = 1D;
+            }
+            while (smallSize > 0) {
+                prob[small[--smallSize]] = 1D;
+            }
+        }
+    }
 }
@@ -35,16 +35,9 @@ public class RoundRobinLoadBalance<T> extends AbstractLoadBalance<T> {
     private AtomicInteger idx = new AtomicInteger(0);
 
     @Override
-    public Refer<T> doSelect(Request request) {
-        List<Refer<T>> refers = this.refers;
-        int index = getNextPositive();
-        for (int i = 0; i < refers.size(); i++) {
-            Refer<T> ref = refers.get((i + index) % refers.size());
-            if (ref.isAlive()) {
-                return ref;
-            }
-        }
-        return null;
+    public Refer<T> doSelect(Request request, RoutingTable<T> routing) {
+        List<Refer<T>> refers = routing.getAliveRefers();
+        return refers.get(getNextPositive() % refers.size());
     }
 
     // get positive int
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.cluster.loadbalance;
+
+import eagle.jfaster.org.rpc.Refer;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 路由快照，包含全部refer和创建时可用的refer，创建后不可变。
+ * refer列表或可用状态变化时整体替换，选择时只读快照，不需要加锁
+ *
+ * Created by fangyanpeng on 2018/4/21.
+ */
+public class RoutingTable<T> {
+
+    @Getter
+    private final List<Refer<T>> refers;
+
+    @Getter
+    private final List<Refer<T>> aliveRefers;
+
+    private final boolean[] alive;
+
+    private RoutingTable(List<Refer<T>> refers, List<Refer<T>> aliveRefers, boolean[] alive) {
+        this.refers = refers;
+        this.aliveRefers = aliveRefers;
+        this.alive = alive;
+    }
+
+    public boolean isAlive(int index) {
+        return alive[index];
+    }
+
+    public static <T> RoutingTable<T> build(List<Refer<T>> refers) {
+        if (refers == null) {
+            refers = Collections.emptyList();
+        }
+        int size = refers.size();
+        boolean[] alive = new boolean[size];
+        List<Refer<T>> aliveRefers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Refer<T> refer = refers.get(i);
+            if (refer.isAlive()) {
+                alive[i] = true;
+                aliveRefers.add(refer);
+            }
+        }
+        return new RoutingTable<>(refers, Collections.unmodifiableList(aliveRefers), alive);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.cluster.merger;
+
+import eagle.jfaster.org.cluster.Merger;
+import eagle.jfaster.org.spi.SpiInfo;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+/**
+ * 按返回值类型合并：List和其他Collection合并为一个List，Set合并为Set，Map合并为Map，数组拼接，
+ * 其他类型取第一个非空结果
+ *
+ * Created by fangyanpeng on 2018/4/23.
+ */
+@SpiInfo(name = "default")
+public class DefaultMerger implements Merger {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object merge(List<Object> results) {
+        Object first = null;
+        for (Object result : results) {
+            if (result != null) {
+                first = result;
+                break;
+            }
+        }
+        if (first == null || results.size() == 1) {
+            return first;
+        }
+        if (first instanceof Set) {
+            Set<Object> merged = new HashSet<>();
+            for (Object result : results) {
+                if (result != null) {
+                    merged.addAll((Collection<Object>) result);
+                }
+            }
+            return merged;
+        }
+        if (first instanceof Collection) {
+            List<Object> merged = new ArrayList<>();
+            for (Object result : results) {
+                if (result != null) {
+                    merged.addAll((Collection<Object>) result);
+                }
+            }
+            return merged;
+        }
+        if (first instanceof Map) {
+            Map<Object, Object> merged = new HashMap<>();
+            for (Object result : results) {
+                if (result != null) {
+                    merged.putAll((Map<Object, Object>) result);
+                }
+            }
+            return merged;
+        }
+        if (first.getClass().isArray()) {
+            int length = 0;
+            for (Object result : results) {
+                if (result != null) {
+                    length += Array.getLength(result);
+                }
+            }
+            Object merged = Array.newInstance(first.getClass().getComponentType(), length);
+            int pos = 0;
+            for (Object result : results) {
+                if (result != null) {
+                    int len = Array.getLength(result);
+                    System.arraycopy(result, 0, merged, pos, len);
+                    pos += len;
+                }
+            }
+            return merged;
+        }
+        return first;
+    }
+}
@@ -21,9 +21,12 @@ import com.google.common.base.Strings;
 
 import eagle.jfaster.org.cluster.ReferCluster;
 import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.config.common.MethodPolicies;
+import eagle.jfaster.org.config.common.MethodPolicy;
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
 import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.rpc.support.DeadlineContext;
 import eagle.jfaster.org.rpc.support.EagleRequest;
 import eagle.jfaster.org.rpc.support.OpaqueGenerator;
 import eagle.jfaster.org.rpc.support.TraceContext;
@@ -97,11 +100,14 @@ public abstract class AbstractReferInvokeHandler<T> implements InvocationHandler
         if (!Strings.isNullOrEmpty(traceId)) {
             request.setAttachment(TraceContext.TRACE_KEY, traceId);
         }
+        //在服务端处理请求的线程里发起的调用，不能超过上游请求剩下的时间
+        request.setDeadline(DeadlineContext.getDeadline());
         request.setOpaque(OpaqueGenerator.getOpaque());
         request.setParameters(args);
         request.setMethodName(method.getName());
         request.setNeedCompress(compress);
         request.setParameterDesc(ReflectUtil.getMethodParamDesc(method));
+        request.setPolicy(getPolicy(method));
         try {
             return handle(method, request);
         } catch (Throwable e) {
@@ -109,6 +115,7 @@ public abstract class AbstractReferInvokeHandler<T> implements InvocationHandler
             selectDefaultCluster();
             if (tmp != defaultCluster) {
                 logger.info(String.format("ReferInvokeHandler invoke,interface: '%s',from '%s' to '%s'", interfaceName, tmp.getConfig().identity(), defaultCluster.getConfig().identity()));
+                request.setPolicy(getPolicy(method));
                 try {
                     return handle(method, request);
                 } catch (Throwable e1) {
@@ -123,5 +130,10 @@ public abstract class AbstractReferInvokeHandler<T> implements InvocationHandler
         }
     }
 
+    private MethodPolicy getPolicy(Method method) {
+        MethodPolicies policies = defaultCluster.getMethodPolicies();
+        return policies == null ? null : policies.get(method);
+    }
+
     protected abstract Object handle(Method method, Request request);
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 支持流式读写的序列化，编码器可以直接序列化到网络buffer中，不再经过中间数组
+ *
+ * Created by fangyanpeng on 2018/4/13.
+ */
+public interface StreamSerialization extends Serialization {
+
+    void serialize(Object obj, OutputStream out) throws IOException;
+
+    <T> T deserialize(InputStream in, Class<T> clz) throws IOException;
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.codec.support;
+
+import eagle.jfaster.org.codec.StreamSerialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * 流式序列化基类，byte[]方式的读写桥接到流式读写上
+ *
+ * Created by fangyanpeng on 2018/4/13.
+ */
+public abstract class AbstractStreamSerialization implements StreamSerialization {
+
+    @Override
+    public byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        serialize(obj, bos);
+        return bos.toByteArray();
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clz) throws IOException {
+        return deserialize(new ByteArrayInputStream(bytes), clz);
+    }
+}
@@ -27,8 +27,10 @@ import com.google.common.collect.Maps;
 import eagle.jfaster.org.codec.Codec;
 import eagle.jfaster.org.codec.Serialization;
 import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.rpc.support.CancelRequest;
 import eagle.jfaster.org.rpc.support.EagleRequest;
 import eagle.jfaster.org.rpc.support.EagleResponse;
+import eagle.jfaster.org.rpc.support.MethodTable;
 import eagle.jfaster.org.rpc.Request;
 import eagle.jfaster.org.rpc.Response;
 import eagle.jfaster.org.spi.SpiInfo;
@@ -51,10 +53,16 @@ import java.util.Map;
  * + parameterDesc长度(4个字节)  + parameterDesc
  * + parameterList(长度+值)
  *
+ * 协商过方法id的请求：magicCode(2个字节) + opaque(4个字节)
+ * + methodId(4个字节)
+ * + parameterList(长度+值)
+ *
  * 返回协议：magicCode(2个字节) + opaque(4个字节)
  * + className长度(2个字节) + className
  * + value
  *
+ * 取消请求：magicCode(2个字节) + 要取消的请求的opaque(4个字节)
+ *
  * Created by fangyanpeng1 on 2017/7/28.
  */
 @SpiInfo(name = "eagle")
@@ -70,6 +78,8 @@ public class EagleCodec implements Codec {
             } catch (Throwable e) {
                 return encodeExceptionResponse((Response) message, serialization, e);
             }
+        } else if (message instanceof CancelRequest) {
+            return encodeCancel((CancelRequest) message);
         } else {
             return encodeRequest((Request) message, serialization);
         }
@@ -131,6 +141,16 @@ public class EagleCodec implements Codec {
         return content;
     }
 
+    private ByteBuffer encodeCancel(CancelRequest cancel) {
+        int dataLen = 10;//totalLen+magic+opaque 4+2+4
+        ByteBuffer content = ByteBuffer.allocate(dataLen);
+        content.putInt(dataLen);
+        content.putShort((short) (EAGLE_MAGIC_CODE | EAGLE_TYPE_REQ | EAGLE_REQ_CANCEL));
+        content.putInt(cancel.getOpaque());
+        content.flip();
+        return content;
+    }
+
     private ByteBuffer encodeRequest(Request request, Serialization serialization) throws IOException {
         short magicCode = EAGLE_MAGIC_CODE;
         magicCode |= EAGLE_TYPE_REQ;
@@ -249,10 +269,23 @@ public class EagleCodec implements Codec {
 
     private Object decodeRequest(ByteBuffer buffer, Serialization serialization, int opaque, short magicCode)
             throws IOException, ClassNotFoundException {
+        if (isCancel(magicCode)) {
+            return new CancelRequest(opaque);
+        }
         EagleRequest request = new EagleRequest();
         request.setOpaque(opaque);
         request.setNeedCompress(isCompress(magicCode));
 
+        /*按协商的方法id解码，不再携带接口名、方法名和参数描述*/
+        if (isRequestWithMethodId(magicCode)) {
+            MethodTable.MethodEntry entry = decodeMethodEntry(buffer.getInt(), request);
+            if (isRequestWithParameter(magicCode)) {
+                request.setParameters(decodeRequestParameter(buffer, entry.getParameterTypes(), serialization));
+            }
+            request.setAttachments(decodeRequestAttachments(buffer));
+            return request;
+        }
+
         /*解码interfaceName最大长度127*/
         short len = buffer.getShort();
         byte[] data = new byte[len];
@@ -279,8 +312,23 @@ public class EagleCodec implements Codec {
         return request;
     }
 
+    public static MethodTable.MethodEntry decodeMethodEntry(int methodId, EagleRequest request) {
+        MethodTable.MethodEntry entry = MethodTable.get(methodId);
+        if (entry == null) {
+            throw new EagleFrameException("Error method id '%d' not exist", methodId);
+        }
+        request.setMethodId(methodId);
+        request.setInterfaceName(entry.getInterfaceName());
+        request.setMethodName(entry.getMethodName());
+        request.setParameterDesc(entry.getParameterDesc());
+        return entry;
+    }
+
     private Object[] decodeRequestParameter(ByteBuffer buffer, String parameterDesc, Serialization serialization) throws IOException, ClassNotFoundException {
-        Class<?>[] classTypes = ReflectUtil.forNames(parameterDesc);
+        return decodeRequestParameter(buffer, ReflectUtil.forNames(parameterDesc), serialization);
+    }
+
+    private Object[] decodeRequestParameter(ByteBuffer buffer, Class<?>[] classTypes, Serialization serialization) throws IOException {
         Object[] paramObjs = new Object[classTypes.length];
         int dataLen;
         byte[] data;
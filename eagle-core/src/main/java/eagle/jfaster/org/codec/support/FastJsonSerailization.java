@@ -24,10 +24,11 @@ import com.alibaba.fastjson.serializer.SerializerFeature;
 
 import static eagle.jfaster.org.constant.EagleConstants.*;
 
-import eagle.jfaster.org.codec.Serialization;
 import eagle.jfaster.org.spi.SpiInfo;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  *
@@ -35,20 +36,44 @@ import java.io.IOException;
  * Created by fangyanpeng1 on 2017/7/29.
  */
 @SpiInfo(name = "fastjson")
-public class FastJsonSerailization implements Serialization {
+public class FastJsonSerailization extends AbstractStreamSerialization {
 
     @Override
     public byte[] serialize(Object data) throws IOException {
+        SerializeWriter out = write(data);
+        try {
+            return out.toBytes(CHARSET_UTF8);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public void serialize(Object data, OutputStream os) throws IOException {
+        SerializeWriter out = write(data);
+        try {
+            out.writeTo(os, CHARSET_UTF8);
+        } finally {
+            out.close();
+        }
+    }
+
+    private SerializeWriter write(Object data) {
         SerializeWriter out = new SerializeWriter();
         JSONSerializer serializer = new JSONSerializer(out);
         serializer.config(SerializerFeature.WriteEnumUsingToString, true);
         serializer.config(SerializerFeature.WriteClassName, true);
         serializer.write(data);
-        return out.toBytes(CHARSET_UTF8);
+        return out;
     }
 
     @Override
     public <T> T deserialize(byte[] data, Class<T> clz) throws IOException {
         return JSON.parseObject(new String(data, CHARSET_UTF8), clz);
     }
+
+    @Override
+    public <T> T deserialize(InputStream is, Class<T> clz) throws IOException {
+        return JSON.parseObject(is, CHARSET_UTF8, clz);
+    }
 }
@@ -20,12 +20,11 @@ package eagle.jfaster.org.codec.support;
 import com.caucho.hessian.io.Hessian2Input;
 import com.caucho.hessian.io.Hessian2Output;
 
-import eagle.jfaster.org.codec.Serialization;
 import eagle.jfaster.org.spi.SpiInfo;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * hession2 序列化，要求序列化的对象实现 java.io.Serializable 接口
@@ -33,19 +32,17 @@ import java.io.IOException;
  * Created by fangyanpeng1 on 2017/7/29.
  */
 @SpiInfo(name = "hessian")
-public class HessianSerialization implements Serialization {
+public class HessianSerialization extends AbstractStreamSerialization {
     @Override
-    public byte[] serialize(Object data) throws IOException {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        Hessian2Output out = new Hessian2Output(bos);
+    public void serialize(Object data, OutputStream os) throws IOException {
+        Hessian2Output out = new Hessian2Output(os);
         out.writeObject(data);
         out.flush();
-        return bos.toByteArray();
     }
 
     @Override
-    public <T> T deserialize(byte[] data, Class<T> clz) throws IOException {
-        Hessian2Input input = new Hessian2Input(new ByteArrayInputStream(data));
+    public <T> T deserialize(InputStream is, Class<T> clz) throws IOException {
+        Hessian2Input input = new Hessian2Input(is);
         return (T) input.readObject(clz);
     }
 }
@@ -20,29 +20,55 @@ package eagle.jfaster.org.codec.support;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoFactory;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.google.common.base.Strings;
+import com.google.common.io.Resources;
 
 import de.javakaffee.kryoserializers.ArraysAsListSerializer;
 import de.javakaffee.kryoserializers.SynchronizedCollectionsSerializer;
 import de.javakaffee.kryoserializers.UnmodifiableCollectionsSerializer;
 import de.javakaffee.kryoserializers.cglib.CGLibProxySerializer;
 import de.javakaffee.kryoserializers.guava.*;
-import eagle.jfaster.org.codec.Serialization;
+import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.logging.InternalLogger;
+import eagle.jfaster.org.logging.InternalLoggerFactory;
 import eagle.jfaster.org.spi.SpiInfo;
+import eagle.jfaster.org.util.ReflectUtil;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.TreeSet;
+
+import static eagle.jfaster.org.constant.EagleConstants.*;
 
 /**
+ *
+ * kryo 序列化，Kryo实例池化，io线程和业务线程都可以使用，Input/Output按线程复用。
+ *
+ * 通过系统属性eagle.jfaster.org.kryo.register(逗号分隔)或classpath下的META-INF/eagle/kryo.register(每行一个类)
+ * 注册常用的类，注册过的类序列化时只写入id不再写入类名。注册的类按类名排序后分配id，所以客户端和服务端注册的类必须一致
  *
  * Created by fangyanpeng1 on 2017/7/29.
  */
 @SpiInfo(name = "kryo")
-public class KryoSerialization implements Serialization {
+public class KryoSerialization extends AbstractStreamSerialization {
+
+    private final static InternalLogger logger = InternalLoggerFactory.getInstance(KryoSerialization.class);
+
+    private static final int BUFFER_SIZE = 4096;
 
-    protected static final ThreadLocal<Kryo> kryos = new ThreadLocal<Kryo>() {
-        protected Kryo initialValue() {
+    private static final List<Class<?>> registerClasses = loadRegisterClasses();
+
+    protected static final KryoPool kryos = new KryoPool.Builder(new KryoFactory() {
+        @Override
+        public Kryo create() {
             Kryo kryo = new Kryo();
             kryo.register(CGLibProxySerializer.CGLibProxyMarker.class, new CGLibProxySerializer());
             UnmodifiableCollectionsSerializer.registerSerializers(kryo);
@@ -59,24 +85,90 @@ public class KryoSerialization implements Serialization {
             LinkedHashMultimapSerializer.registerSerializers(kryo);
             LinkedListMultimapSerializer.registerSerializers(kryo);
             TreeMultimapSerializer.registerSerializers(kryo);
+            for (Class<?> clz : registerClasses) {
+                kryo.register(clz);
+            }
             return kryo;
         }
+    }).softReferences().build();
+
+    private static final ThreadLocal<Output> outputs = new ThreadLocal<Output>() {
+        protected Output initialValue() {
+            return new Output(BUFFER_SIZE, -1);
+        }
+    };
+
+    private static final ThreadLocal<Input> inputs = new ThreadLocal<Input>() {
+        protected Input initialValue() {
+            return new Input(BUFFER_SIZE);
+        }
     };
 
     @Override
-    public byte[] serialize(Object obj) throws IOException {
-        Kryo kryo = kryos.get();
-        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-        Output out = new Output(byteOut);
-        kryo.writeClassAndObject(out, obj);
-        out.flush();
-        return byteOut.toByteArray();
+    public void serialize(Object obj, OutputStream os) throws IOException {
+        Kryo kryo = kryos.borrow();
+        Output out = outputs.get();
+        try {
+            out.setOutputStream(os);
+            kryo.writeClassAndObject(out, obj);
+            out.flush();
+        } finally {
+            out.setOutputStream(null);
+            kryos.release(kryo);
+        }
     }
 
     @Override
-    public <T> T deserialize(byte[] bytes, Class<T> clz) throws IOException {
-        Kryo kryo = kryos.get();
-        Input in = new Input(new ByteArrayInputStream(bytes));
-        return (T) kryo.readClassAndObject(in);
+    public <T> T deserialize(InputStream is, Class<T> clz) throws IOException {
+        Kryo kryo = kryos.borrow();
+        Input in = inputs.get();
+        try {
+            in.setInputStream(is);
+            return (T) kryo.readClassAndObject(in);
+        } finally {
+            in.setInputStream(null);
+            kryos.release(kryo);
+        }
+    }
+
+    private static List<Class<?>> loadRegisterClasses() {
+        TreeSet<String> classNames = new TreeSet<>();
+        String property = System.getProperty(EAGLE_JFASTER_ORG_KRYO_REGISTER);
+        if (!Strings.isNullOrEmpty(property)) {
+            classNames.addAll(Arrays.asList(COMMA_SPLIT_PATTERN.split(property.trim())));
+        }
+        try {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader == null) {
+                classLoader = KryoSerialization.class.getClassLoader();
+            }
+            Enumeration<URL> urls = classLoader.getResources(KRYO_REGISTER_RESOURCE);
+            while (urls.hasMoreElements()) {
+                for (String line : Resources.readLines(urls.nextElement(), CHARSET_UTF8)) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        classNames.add(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new EagleFrameException("Error load kryo register classes: %s", e.getMessage());
+        }
+        List<Class<?>> classes = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            if (className.isEmpty()) {
+                continue;
+            }
+            try {
+                classes.add(ReflectUtil.forName(className));
+            } catch (ClassNotFoundException e) {
+                //注册的id是按顺序分配的，缺少一个会导致后面的id全部错位
+                throw new EagleFrameException("Error kryo register class '%s' not found", className);
+            }
+        }
+        if (!classes.isEmpty()) {
+            logger.info(String.format("Kryo register classes: %s", classNames));
+        }
+        return classes;
     }
 }
@@ -17,11 +17,12 @@
 
 package eagle.jfaster.org.codec.support;
 
+import com.google.common.io.ByteStreams;
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.MessageLite;
 
-import eagle.jfaster.org.codec.Serialization;
+import eagle.jfaster.org.codec.StreamSerialization;
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.spi.SpiInfo;
 
@@ -34,16 +35,22 @@ import java.lang.reflect.Method;
  * Created by fangyanpeng1 on 2017/7/29.
  */
 @SpiInfo(name = "protobuf")
-public class ProtoBufSerialization implements Serialization {
+public class ProtoBufSerialization implements StreamSerialization {
 
     @Override
     public byte[] serialize(Object obj) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        CodedOutputStream output = CodedOutputStream.newInstance(baos);
+        serialize(obj, baos);
+        return baos.toByteArray();
+    }
+
+    @Override
+    public void serialize(Object obj, OutputStream os) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(os);
         output.writeBoolNoTag(obj == null);
         if (obj == null) {
             output.flush();
-            return baos.toByteArray();
+            return;
         }
 
         Class<?> clazz = obj.getClass();
@@ -68,7 +75,7 @@ public class ProtoBufSerialization implements Serialization {
         } else if (MessageLite.class.isAssignableFrom(clazz)) {
             output.writeMessageNoTag((MessageLite) obj);
         } else if (Throwable.class.isAssignableFrom(clazz)) {
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            ObjectOutputStream oos = new ObjectOutputStream(os);
             oos.writeObject(obj);
             oos.flush();
         } else {
@@ -76,7 +83,12 @@ public class ProtoBufSerialization implements Serialization {
         }
 
         output.flush();
-        return baos.toByteArray();
+    }
+
+    //Throwable的编码中标识位在末尾，需要完整读出后再解析
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> clazz) throws IOException {
+        return deserialize(ByteStreams.toByteArray(in), clazz);
     }
 
     @SuppressWarnings("unchecked")
@@ -45,6 +45,16 @@ public class BaseReferConfig extends AbstractInterfaceConfig {
     @Getter
     protected Integer maxClientConnection;
 
+    // 多路复用的长连接数，配置后不再使用连接池
+    @Setter
+    @Getter
+    protected Integer multiplexConnection;
+
+    // 同一个host:port上的所有接口共享连接
+    @Setter
+    @Getter
+    protected Boolean shareConnection;
+
     @Setter
     @Getter
     protected Long idleTime;
@@ -57,6 +67,46 @@ public class BaseReferConfig extends AbstractInterfaceConfig {
     @Getter
     protected Integer maxInvokeError;
 
+    // 是否开启refer级熔断
+    @Setter
+    @Getter
+    protected Boolean circuitBreaker;
+
+    // 熔断统计的滑动窗口
+    @Setter
+    @Getter
+    protected Long breakerWindow;
+
+    // 窗口内最少调用数
+    @Setter
+    @Getter
+    protected Integer breakerMinCalls;
+
+    // 失败率阈值（百分比）
+    @Setter
+    @Getter
+    protected Integer breakerErrorRate;
+
+    // 慢调用耗时阈值
+    @Setter
+    @Getter
+    protected Long breakerSlowCallTime;
+
+    // 慢调用率阈值（百分比）
+    @Setter
+    @Getter
+    protected Integer breakerSlowCallRate;
+
+    // 熔断持续时间
+    @Setter
+    @Getter
+    protected Long breakerOpenTime;
+
+    // 半开状态的探测请求数
+    @Setter
+    @Getter
+    protected Integer breakerProbes;
+
     @Getter
     @Setter
     // 是否开启gzip压缩
@@ -72,6 +122,46 @@ public class BaseReferConfig extends AbstractInterfaceConfig {
     @Getter
     protected String loadbalance;
 
+    // 一致性hash每个refer的虚拟节点数
+    @Setter
+    @Getter
+    protected Integer hashNodes;
+
+    // 一致性hash使用的参数下标（逗号分隔），方法上的配置优先
+    @Setter
+    @Getter
+    protected String hashArguments;
+
+    // 对冲请求的等待时间，0表示取方法最近响应时间的p95
+    @Setter
+    @Getter
+    protected Integer hedgeDelay;
+
+    // 对冲请求数占请求数的最大百分比
+    @Setter
+    @Getter
+    protected Integer hedgeBudget;
+
+    // 集群方式，覆盖protocol上的配置
+    @Setter
+    @Getter
+    protected String cluster;
+
+    // forking集群同时调用的refer数
+    @Setter
+    @Getter
+    protected Integer forks;
+
+    // forking集群需要的成功结果数
+    @Setter
+    @Getter
+    protected Integer forkSuccess;
+
+    // forking和broadcast集群合并结果的方式
+    @Setter
+    @Getter
+    protected String merger;
+
     // 高可用策略
     @Setter
     @Getter
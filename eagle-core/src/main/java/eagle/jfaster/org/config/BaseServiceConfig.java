@@ -37,6 +37,19 @@ public class BaseServiceConfig extends AbstractInterfaceConfig {
     @Getter
     protected String serviceType;
 
+    // 服务独立线程池，不配置时使用端口共享的线程池
+    @Setter
+    @Getter
+    protected Integer bulkheadCoreThread;
+
+    @Setter
+    @Getter
+    protected Integer bulkheadMaxThread;
+
+    @Setter
+    @Getter
+    protected Integer bulkheadQueueSize;
+
     @ConfigDesc(excluded = true)
     public String getExport() {
         return export;
@@ -35,8 +35,28 @@ public enum ConfigEnum {
     coreWorkerThread("coreWorkerThread", 20),
     maxWorkerThread("maxWorkerThread", 200),
     maxInvokeError("maxInvokeError", 10),
+    // refer级熔断，开启后不再使用maxInvokeError
+    circuitBreaker("circuitBreaker", true),
+    // 熔断统计的滑动窗口（毫秒）
+    breakerWindow("breakerWindow", 10 * 1000l),
+    // 窗口内调用数达到该值才判断是否熔断
+    breakerMinCalls("breakerMinCalls", 20),
+    // 失败率阈值（百分比）
+    breakerErrorRate("breakerErrorRate", 50),
+    // 慢调用耗时阈值（毫秒），0表示不统计慢调用，默认取调用超时时间的一半
+    breakerSlowCallTime("breakerSlowCallTime", -1l),
+    // 慢调用率阈值（百分比）
+    breakerSlowCallRate("breakerSlowCallRate", 100),
+    // 熔断后多久进入半开状态（毫秒）
+    breakerOpenTime("breakerOpenTime", 5 * 1000l),
+    // 半开状态放行的探测请求数
+    breakerProbes("breakerProbes", 3),
     minClientConnection("minClientConnection", 2),
     maxClientConnection("maxClientConnection", 10),
+    // 多路复用的长连接数，0表示使用连接池
+    multiplexConnection("multiplexConnection", 0),
+    // 同一个host:port上的所有接口共享连接
+    shareConnection("shareConnection", false),
     maxContentLength("maxContentLength", 10 * 1024 * 1024),
     maxLifetime("maxLifetime", MAX_LIFETIME),
     maxServerConnection("maxServerConnection", 100000),
@@ -81,15 +101,39 @@ public enum ConfigEnum {
     serviceType("serviceType", ServiceTypeEnum.JDK.getType()),/*jdk 或者 cglib*/
 
     cluster("cluster", CLUSTER_DEFAULT),
+    // forking集群同时调用的refer数
+    forks("forks", 2),
+    // forking集群需要的成功结果数
+    forkSuccess("forkSuccess", 1),
+    // forking和broadcast集群合并结果的方式
+    merger("merger", "default"),
     loadbalance("loadbalance", "activeWeight"),
     haStrategy("haStrategy", "failover"),
+    // 一致性hash每个refer的虚拟节点数
+    hashNodes("hashNodes", 160),
+    // 一致性hash取哪些参数作为key，参数下标逗号分隔
+    hashArguments("hashArguments", "0"),
+    // 对冲请求的等待时间（毫秒），0表示取方法最近响应时间的p95
+    hedgeDelay("hedgeDelay", 0),
+    // 对冲请求数占请求数的最大百分比，最大100
+    hedgeBudget("hedgeBudget", 10),
+    // 方法是否幂等，只有幂等方法才会发对冲请求
+    idempotent("idempotent", false),
     protocol("protocol", PROTOCOL_DEFAULT),
     useDefault("useDefault", false),
 
     host("host", ""),
     port("port", 0),
     workerQueueSize("workerQueueSize", 10),
+    // 服务或方法独立线程池的线程数，最大线程数为0表示使用端口共享的线程池
+    bulkheadCoreThread("bulkheadCoreThread", 0),
+    bulkheadMaxThread("bulkheadMaxThread", 0),
+    bulkheadQueueSize("bulkheadQueueSize", 10),
     selectThreadSize("selectThread", Runtime.getRuntime().availableProcessors() * 2),
+    // 所有client共用的IO线程数
+    clientWorkerThread("clientWorkerThread", GRUOUP_WORKER_THREAD),
+    // 合并flush的写次数阈值，0表示每次写都flush
+    flushConsolidation("flushConsolidation", 0),
     filter("filter", ""),
 
 
@@ -43,6 +43,34 @@ public class MethodConfig extends AbstractConfig {
     @Getter
     @Setter
     private Integer actives;
+    // 一致性hash使用的参数下标（逗号分隔）
+
+    @Getter
+    @Setter
+    private String hashArguments;
+    // 是否幂等，幂等方法才会发对冲请求
+
+    @Getter
+    @Setter
+    private Boolean idempotent;
+    // 对冲请求的等待时间
+
+    @Getter
+    @Setter
+    private Integer hedgeDelay;
+    // 服务端方法独立线程池
+
+    @Getter
+    @Setter
+    private Integer bulkheadCoreThread;
+
+    @Getter
+    @Setter
+    private Integer bulkheadMaxThread;
+
+    @Getter
+    @Setter
+    private Integer bulkheadQueueSize;
     // 参数类型（逗号分隔）
 
     @Setter
@@ -47,6 +47,16 @@ public class ProtocolConfig extends AbstractConfig {
     @Getter
     private Integer selectThreadSize;
 
+    // client共用的IO线程池大小
+    @Setter
+    @Getter
+    private Integer clientWorkerThread;
+
+    // 合并flush的写次数阈值，0表示不合并
+    @Setter
+    @Getter
+    private Integer flushConsolidation;
+
     // 最小工作pool线程数
     @Setter
     @Getter
@@ -54,6 +54,11 @@ public class ServiceConfig<T> extends BaseServiceConfig {
 
     private Class<T> interfaceClass;
 
+    // 具体到方法的配置
+    @Setter
+    @Getter
+    protected List<MethodConfig> methods;
+
     private List<Exporter<T>> exporters = new CopyOnWriteArrayList<>();
 
     private List<MergeConfig> registryConfigs;
@@ -84,6 +89,7 @@ public class ServiceConfig<T> extends BaseServiceConfig {
                     throw new IllegalStateException("Should set registry config for service:" + interfaceClass.getName());
                 }
                 this.registryConfigs = regConfigs;
+                ConfigUtil.checkInterfaceAndMethods(interfaceClass, methods);
                 //检查暴露的协议id和端口号
                 Set<ProAndPort> proAndPorts = ConfigUtil.parseExport(getExport());
                 if (CollectionUtil.isEmpty(proAndPorts)) {
@@ -135,6 +141,7 @@ public class ServiceConfig<T> extends BaseServiceConfig {
         serviceConfig.setVersion(Strings.isNullOrEmpty(version) ? ConfigEnum.version.getValue() : version);
         serviceConfig.addExt(ConfigEnum.refreshTimestamp.getName(), String.valueOf(System.currentTimeMillis()));
         ConfigUtil.collectConfigParams(serviceConfig, protocol, baseService, this);
+        ConfigUtil.collectMethodConfigParams(serviceConfig, methods);
         RpcHandler rpcHandler = SpiClassLoader.getClassLoader(RpcHandler.class).getExtension(RPC_HANDLER);
         exporters.add(rpcHandler.export(interfaceClass, ref, serviceConfig, regConfigs));
 
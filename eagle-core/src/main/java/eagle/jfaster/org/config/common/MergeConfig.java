@@ -85,14 +85,38 @@ public class MergeConfig {
 
     @Getter
     @Setter
-    private volatile transient Map<String, Number> numbers = Maps.newHashMapWithExpectedSize(32);
+    private volatile transient Map<String, Number> numbers = Maps.newConcurrentMap();
 
-    public void addExt(String name, String value) {
+    //调用路径上使用的类型化配置快照，配置变化时整体替换。修改配置和生成快照在同一个锁内，避免旧配置生成的快照在修改之后才发布
+    private volatile transient RuntimeConfig runtime;
+
+    public synchronized void addExt(String name, String value) {
         this.extFeilds.put(name, value);
+        invalidate();
     }
 
-    public void addExts(Map<String, String> exts) {
+    public synchronized void addExts(Map<String, String> exts) {
         this.extFeilds.putAll(exts);
+        invalidate();
+    }
+
+    public RuntimeConfig runtime() {
+        RuntimeConfig snapshot = runtime;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = runtime;
+                if (snapshot == null) {
+                    snapshot = new RuntimeConfig(this);
+                    runtime = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private void invalidate() {
+        this.numbers = Maps.newConcurrentMap();
+        this.runtime = null;
     }
 
     public String getExt(String name, String defaultExt) {
@@ -112,7 +136,8 @@ public class MergeConfig {
     }
 
     public int getExtInt(String name, int defaultExt) {
-        Number n = getNumbers().get(name);
+        Map<String, Number> cache = numbers;
+        Number n = cache.get(name);
         if (n != null) {
             return n.intValue();
         }
@@ -121,12 +146,13 @@ public class MergeConfig {
             return defaultExt;
         }
         int i = Integer.parseInt(value);
-        getNumbers().put(name, i);
+        cache.put(name, i);
         return i;
     }
 
     public long getExtLong(String name, long defaultExt) {
-        Number n = getNumbers().get(name);
+        Map<String, Number> cache = numbers;
+        Number n = cache.get(name);
         if (n != null) {
             return n.longValue();
         }
@@ -135,12 +161,13 @@ public class MergeConfig {
             return defaultExt;
         }
         long l = Long.parseLong(value);
-        getNumbers().put(name, l);
+        cache.put(name, l);
         return l;
     }
 
     public Double getExtDouble(String name, double defaultExt) {
-        Number n = getNumbers().get(name);
+        Map<String, Number> cache = numbers;
+        Number n = cache.get(name);
         if (n != null) {
             return n.doubleValue();
         }
@@ -149,14 +176,14 @@ public class MergeConfig {
             return defaultExt;
         }
         double l = Double.parseDouble(value);
-        getNumbers().put(name, l);
+        cache.put(name, l);
         return l;
     }
 
-    public void update(MergeConfig config) {
+    public synchronized void update(MergeConfig config) {
         this.addExts(config.getExtFeilds());
         this.version = config.getVersion();
-        this.numbers.clear();
+        this.runtime = new RuntimeConfig(this);
     }
 
     public boolean disable() {
@@ -262,7 +289,6 @@ public class MergeConfig {
         result = 31 * result + version.hashCode();
         result = 31 * result + protocol.hashCode();
         result = 31 * result + (extFeilds != null ? extFeilds.hashCode() : 0);
-        result = 31 * result + (numbers != null ? numbers.hashCode() : 0);
         result = 31 * result + (HOST_FORMATE != null ? HOST_FORMATE.hashCode() : 0);
         return result;
     }
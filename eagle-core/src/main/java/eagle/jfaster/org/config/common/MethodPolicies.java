@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.config.common;
+
+import eagle.jfaster.org.util.ReflectUtil;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 接口所有方法的调用策略表，refer创建和配置变更时整体重新编译
+ *
+ * Created by fangyanpeng on 2018/4/18.
+ */
+public class MethodPolicies {
+
+    private final Map<Method, MethodPolicy> policies;
+
+    private MethodPolicies(Map<Method, MethodPolicy> policies) {
+        this.policies = policies;
+    }
+
+    public static MethodPolicies compile(MergeConfig config, Class<?> type) {
+        Method[] methods = type.getMethods();
+        //按方法描述排序，保证重新编译后同一个方法的下标不变
+        final Map<Method, String> descs = new HashMap<>(methods.length * 2);
+        for (Method method : methods) {
+            descs.put(method, ReflectUtil.getMethodDesc(method));
+        }
+        Arrays.sort(methods, new Comparator<Method>() {
+            @Override
+            public int compare(Method o1, Method o2) {
+                return descs.get(o1).compareTo(descs.get(o2));
+            }
+        });
+        Map<Method, MethodPolicy> policies = new HashMap<>(methods.length * 2);
+        for (int i = 0; i < methods.length; ++i) {
+            policies.put(methods[i], MethodPolicy.compile(config, i, descs.get(methods[i])));
+        }
+        return new MethodPolicies(policies);
+    }
+
+    public MethodPolicy get(Method method) {
+        return policies.get(method);
+    }
+
+    public int size() {
+        return policies.size();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.config.common;
+
+import com.google.common.base.Strings;
+import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.exception.EagleFrameException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import static eagle.jfaster.org.constant.EagleConstants.COMMA_SPLIT_PATTERN;
+
+/**
+ * 单个方法的调用策略，由方法级配置(methodDesc.key)覆盖接口级配置编译得到，
+ * 编译后不可变，随请求一起传递，调用时不再查询配置
+ *
+ * Created by fangyanpeng on 2018/4/18.
+ */
+@Getter
+@RequiredArgsConstructor
+public class MethodPolicy {
+
+    //在接口方法表中的下标
+    private final int index;
+
+    private final String methodDesc;
+
+    private final int requestTimeout;
+
+    private final int retries;
+
+    //方法级的最大并发，0表示只受接口级的并发限制
+    private final int actives;
+
+    //一致性hash使用的参数下标
+    private final int[] hashArguments;
+
+    private final boolean idempotent;
+
+    //对冲请求的等待时间，0表示按最近响应时间的p95
+    private final int hedgeDelay;
+
+    public static MethodPolicy compile(MergeConfig config, int index, String methodDesc) {
+        String prefix = methodDesc + ".";
+        RuntimeConfig runtime = config.runtime();
+        int requestTimeout = config.getExtInt(prefix + ConfigEnum.requestTimeout.getName(), runtime.getRequestTimeout());
+        int retries = config.getExtInt(prefix + ConfigEnum.retries.getName(), runtime.getRetries());
+        int actives = config.getExtInt(prefix + ConfigEnum.actives.getName(), 0);
+        String hashArguments = config.getExt(prefix + ConfigEnum.hashArguments.getName(), config.getExt(ConfigEnum.hashArguments.getName(), ConfigEnum.hashArguments.getValue()));
+        boolean idempotent = config.getExtBoolean(prefix + ConfigEnum.idempotent.getName(), config.getExtBoolean(ConfigEnum.idempotent.getName(), ConfigEnum.idempotent.isBooleanValue()));
+        int hedgeDelay = config.getExtInt(prefix + ConfigEnum.hedgeDelay.getName(), config.getExtInt(ConfigEnum.hedgeDelay.getName(), ConfigEnum.hedgeDelay.getIntValue()));
+        return new MethodPolicy(index, methodDesc, requestTimeout, retries, actives, parseIndexes(methodDesc, hashArguments), idempotent, hedgeDelay);
+    }
+
+    private static int[] parseIndexes(String methodDesc, String value) {
+        if (Strings.isNullOrEmpty(value) || value.trim().isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = COMMA_SPLIT_PATTERN.split(value.trim());
+        int[] indexes = new int[parts.length];
+        for (int i = 0; i < indexes.length; i++) {
+            try {
+                indexes[i] = Integer.parseInt(parts[i]);
+            } catch (NumberFormatException e) {
+                indexes[i] = -1;
+            }
+            if (indexes[i] < 0) {
+                throw new EagleFrameException("Illegal hash-arguments '%s' of method '%s', must be non-negative parameter indexes", value, methodDesc);
+            }
+        }
+        return indexes;
+    }
+}
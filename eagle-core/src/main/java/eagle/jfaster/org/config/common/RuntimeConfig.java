@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.config.common;
+
+import eagle.jfaster.org.config.ConfigEnum;
+import lombok.Getter;
+
+/**
+ * 调用路径上用到的配置的类型化快照，创建后不可变，配置变更时由{@link MergeConfig}整体替换，
+ * 读取时不需要查询和解析字符串配置
+ *
+ * Created by fangyanpeng on 2018/4/18.
+ */
+@Getter
+public class RuntimeConfig {
+
+    private final int requestTimeout;
+
+    private final int retries;
+
+    private final int weight;
+
+    private final long refreshTimestamp;
+
+    private final long connectTimeout;
+
+    private final int minClientConnection;
+
+    private final int maxClientConnection;
+
+    private final long maxLifetime;
+
+    private final long idleTime;
+
+    private final int actives;
+
+    RuntimeConfig(MergeConfig config) {
+        this.requestTimeout = config.getExtInt(ConfigEnum.requestTimeout.getName(), ConfigEnum.requestTimeout.getIntValue());
+        this.retries = config.getExtInt(ConfigEnum.retries.getName(), ConfigEnum.retries.getIntValue());
+        this.weight = config.getExtInt(ConfigEnum.weight.getName(), ConfigEnum.weight.getIntValue());
+        this.refreshTimestamp = config.getExtLong(ConfigEnum.refreshTimestamp.getName(), ConfigEnum.refreshTimestamp.getLongValue());
+        this.connectTimeout = config.getExtLong(ConfigEnum.connectTimeout.getName(), ConfigEnum.connectTimeout.getLongValue());
+        this.minClientConnection = config.getExtInt(ConfigEnum.minClientConnection.getName(), ConfigEnum.minClientConnection.getIntValue());
+        this.maxClientConnection = config.getExtInt(ConfigEnum.maxClientConnection.getName(), ConfigEnum.maxClientConnection.getIntValue());
+        this.maxLifetime = config.getExtLong(ConfigEnum.maxLifetime.getName(), ConfigEnum.maxLifetime.getLongValue());
+        this.idleTime = config.getExtLong(ConfigEnum.idleTime.getName(), ConfigEnum.idleTime.getLongValue());
+        this.actives = config.getExtInt(ConfigEnum.actives.getName(), ConfigEnum.actives.getIntValue());
+    }
+}
@@ -30,6 +30,8 @@ import static java.util.concurrent.TimeUnit.MINUTES;
 public class EagleConstants {
     public static final String EAGLE_JFASTER_ORG_SOCKET_SNDBUF_SIZE = "eagle.jfaster.org.socket.sndbuf.size";
     public static final String EAGLE_JFASTER_ORG_SOCKET_RCVBUF_SIZE = "eagle.jfaster.org.socket.rcvbuf.size";
+    public static final String EAGLE_JFASTER_ORG_KRYO_REGISTER = "eagle.jfaster.org.kryo.register";
+    public static final String KRYO_REGISTER_RESOURCE = "META-INF/eagle/kryo.register";
     public static final String DEFAULT_VERSION = "1.0";
     public static final String NODE_TYPE_SERVICE = "service";
     public static final String NODE_TYPE_REFERER = "refer";
@@ -48,16 +50,25 @@ public class EagleConstants {
     public static final short EAGLE_RESPONSE_NORMAL = (short) 0x0004;
     public static final short EAGLE_RESPONSE_EXCEPTION = (short) 0x0008;
     public static final short EAGLE_REQ_PARAMETER = (short) 0x0010;
+    public static final short EAGLE_REQ_METHOD_ID = (short) 0x0020;
+    public static final short EAGLE_REQ_CANCEL = (short) 0x0040;
     public static final String DEFAULT_CHARACTER = "utf-8";
     public static final Charset CHARSET_UTF8 = Charset.forName("UTF-8");
     public static final String HEARTBEAT_INTERFACE_NAME = "eagle.jfaster.org.transport.support.EagleHeartBeat";
     public static final String HEARTBEAT_METHOD_NAME = "heartBeat";
+    public static final String METHOD_TABLE_METHOD_NAME = "methodTable";
+    public static final String CAPABILITIES_METHOD_NAME = "capabilities";
+    public static final String CAPABILITY_CANCEL = "cancel";
     public static int SOCKET_SNDBUF_SIZE = Integer.parseInt(System.getProperty(EAGLE_JFASTER_ORG_SOCKET_SNDBUF_SIZE, "65535"));
     public static int SOCKET_RCVBUF_SIZE = Integer.parseInt(System.getProperty(EAGLE_JFASTER_ORG_SOCKET_RCVBUF_SIZE, "65535"));
     public static final int DEFAULT_WORKER_THREAD = Runtime.getRuntime().availableProcessors();
     public static final int DEFAULT_QUEUE_SIZE = 200;
     public static final int GRUOUP_WORKER_THREAD = Runtime.getRuntime().availableProcessors() * 2;
-    public static final int NETTY_TIMEOUT_TIMER_PERIOD = 200;
+    public static final int NETTY_TIMEOUT_TICK = 10;
+    public static final int NETTY_TIMEOUT_WHEEL_SIZE = 512;
+    public static final int NETTY_TIMEOUT_DELAY = 300;
+    public static final int NETTY_CALLBACK_TABLE_SIZE = 1024;
+    public static final int LATENCY_EWMA_DECAY = 10 * SECOND_MILLS;
     public static final int ASYNC_TIMEOUT_TIMER_PERIOD = 1000;
     public static final long MAX_LIFETIME = MINUTES.toMillis(30);
     public static final Pattern REGISTRY_SPLIT_PATTERN = Pattern.compile("\\s*[|;]+\\s*");
@@ -68,6 +79,7 @@ public class EagleConstants {
     public static final String DEFAULT_RESOURCE_PATTERN = "**/*.class";
     public static final String PACKAGE = "base-package";
     public static final int WARMUP = 10 * 60 * 1000;
+    public static final int WARMUP_TICK = 5 * SECOND_MILLS;
     public static final int STATISTIC_PEROID = 60; // 60 seconds
 
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.exception;
+
+import lombok.NoArgsConstructor;
+
+/**
+ * 服务实现抛出的业务异常，说明节点本身是好的，不计入熔断和响应时间惩罚
+ *
+ * Created by fangyanpeng on 2018/4/26.
+ */
+@NoArgsConstructor
+public class EagleRemoteException extends EagleFrameException {
+
+    public EagleRemoteException(String message) {
+        super("%s", message);
+    }
+}
@@ -27,6 +27,12 @@ public interface Refer<T> {
 
     int getActiveCount();
 
+    //响应时间的指数加权平均，单位纳秒，没有数据时为0
+    long getLatency();
+
+    //当前允许的并发上限，没有限制时为Integer.MAX_VALUE
+    int getConcurrentLimit();
+
     Class<T> getType();
 
     void updateConfig(MergeConfig refConfig);
@@ -37,5 +43,12 @@ public interface Refer<T> {
 
     Object request(Request request);
 
+    //放弃还没返回的同步请求，等待的线程立即返回并通知服务端取消
+    void cancel(Request request);
+
     boolean isAlive();
+
+    void addStateListener(ReferStateListener listener);
+
+    void removeStateListener(ReferStateListener listener);
 }
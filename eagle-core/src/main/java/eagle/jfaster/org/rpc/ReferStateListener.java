@@ -0,0 +1,28 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.rpc;
+
+/**
+ * refer可用状态变化的监听，负载均衡据此更新路由表，不再每次调用时检查refer是否可用
+ *
+ * Created by fangyanpeng on 2018/4/21.
+ */
+public interface ReferStateListener {
+
+    void onStateChange();
+}
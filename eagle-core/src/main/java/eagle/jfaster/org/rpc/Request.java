@@ -17,6 +17,8 @@
 
 package eagle.jfaster.org.rpc;
 
+import eagle.jfaster.org.config.common.MethodPolicy;
+
 import java.util.Map;
 
 /**
@@ -32,8 +34,20 @@ public interface Request {
 
     String getParameterDesc();
 
+    //协商后的方法id，0表示按方法名调用
+    int getMethodId();
+
     Object[] getParameters();
 
+    //编译好的方法调用策略，只在调用方使用，不参与序列化
+    MethodPolicy getPolicy();
+
+    //上游请求留下的本地截止时间戳(毫秒)，0表示没有，只在调用方使用，不参与序列化
+    long getDeadline();
+
+    //调用方已经放弃等待，只在调用方使用，不参与序列化
+    boolean isCancelled();
+
     boolean isNeedCompress();
 
     Map<String, String> getAttachments();
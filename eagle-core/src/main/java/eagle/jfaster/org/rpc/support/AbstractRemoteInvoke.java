@@ -20,6 +20,7 @@ import static eagle.jfaster.org.util.InterceptorUtil.onAfter;
 import static eagle.jfaster.org.util.InterceptorUtil.onBefore;
 import static eagle.jfaster.org.util.InterceptorUtil.onError;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.Map;
 
@@ -27,6 +28,7 @@ import com.google.common.collect.Maps;
 
 import eagle.jfaster.org.config.common.MergeConfig;
 import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.exception.EagleRemoteException;
 import eagle.jfaster.org.interceptor.ExecutionInterceptor;
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
@@ -61,11 +63,21 @@ public abstract class AbstractRemoteInvoke<T, M> implements RemoteInvoke<T> {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Response invoke(Request request) {
         onBefore(request, interceptors);
-        String methodDesc = ReflectUtil.getMethodDesc(request.getMethodName(), request.getParameterDesc());
+        MethodTable.MethodEntry entry = MethodTable.get(request.getMethodId());
+        String methodDesc;
+        M method;
+        if (entry != null && entry.getInvoke() == this) {
+            //协商了方法id的请求直接使用方法表中解析好的方法
+            methodDesc = entry.getMethodDesc();
+            method = (M) entry.getMethod();
+        } else {
+            methodDesc = ReflectUtil.getMethodDesc(request.getMethodName(), request.getParameterDesc());
+            method = methodInvoke.get(methodDesc);
+        }
         EagleResponse response = new EagleResponse();
-        M method = methodInvoke.get(methodDesc);
         if (method == null) {
             Exception ex = new EagleFrameException("Error - invoke method '%s' is not exist", methodDesc);
             response.setException(ex);
@@ -76,6 +88,12 @@ public abstract class AbstractRemoteInvoke<T, M> implements RemoteInvoke<T> {
             Object value = this.invoke(request, method);
             response.setValue(value);
             onAfter(request, interceptors);
+        } catch (InvocationTargetException e) {
+            //服务实现抛出的异常，和框架错误区分开，调用方据此判断节点是否故障
+            Throwable cause = e.getTargetException();
+            logger.error(String.format("%s AbstractRemoteInvoke invoke error", request.getOpaque()), cause);
+            response.setException(new EagleRemoteException(cause.getMessage()));
+            onError(request, interceptors, cause);
         } catch (Throwable e) {
             logger.error(String.format("%s AbstractRemoteInvoke invoke error", request.getOpaque()), e);
             response.setException(new EagleFrameException(e.getMessage()));
@@ -96,5 +114,8 @@ public abstract class AbstractRemoteInvoke<T, M> implements RemoteInvoke<T> {
 
     protected abstract void init();
 
+    /**
+     * 服务实现抛出的异常包装成InvocationTargetException
+     */
     protected abstract Object invoke(Request request, M method) throws Throwable;
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+package eagle.jfaster.org.rpc.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于延迟梯度的自适应并发限制，无锁。
+ * 每个采样窗口用窗口内平均耗时(短期)和长期平均耗时比较，耗时上升说明开始排队则按比例收缩并发上限，
+ * 耗时平稳时按sqrt(limit)逐步放大，超过上限的请求直接拒绝不排队
+ *
+ * Created by fangyanpeng on 2018/4/21.
+ */
+public class AdaptiveLimiter {
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final int WINDOW_MIN_SAMPLES = 10;
+
+    //长期平均耗时约覆盖的窗口数
+    private static final double LONG_WINDOW = 100;
+
+    //短期耗时在长期耗时的TOLERANCE倍以内不收缩
+    private static final double TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inflight = new AtomicInteger(0);
+
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong windowRtt = new AtomicLong(0);
+
+    private final AtomicInteger windowSamples = new AtomicInteger(0);
+
+    //只有赢得窗口切换的线程会修改
+    private volatile double limit;
+
+    private volatile double longRtt;
+
+    public AdaptiveLimiter(int initLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(Math.max(initLimit, this.minLimit), this.maxLimit);
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放并记录一次耗时
+     */
+    public void release(long rttNanos) {
+        int current = inflight.getAndDecrement();
+        windowRtt.addAndGet(rttNanos);
+        int samples = windowSamples.incrementAndGet();
+        long start = windowStart.get();
+        long now = System.nanoTime();
+        if (samples < WINDOW_MIN_SAMPLES || now - start < WINDOW_NANOS || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        long rttSum = windowRtt.getAndSet(0);
+        samples = windowSamples.getAndSet(0);
+        if (samples > 0) {
+            update((double) rttSum / samples, current);
+        }
+    }
+
+    /**
+     * 只释放不采样，用于调用异常等耗时不可信的情况
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    private void update(double shortRtt, int inflight) {
+        double longRtt = this.longRtt;
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt = longRtt * (1 - 1 / LONG_WINDOW) + shortRtt / LONG_WINDOW;
+        }
+        //负载下降后长期耗时远大于当前耗时，加快回落，避免长时间不收缩
+        if (longRtt > shortRtt * 2) {
+            longRtt *= 0.95;
+        }
+        this.longRtt = longRtt;
+        double limit = this.limit;
+        //实际并发远没有达到上限，窗口耗时说明不了容量
+        if (inflight < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        this.limit = Math.min(Math.max(newLimit, minLimit), maxLimit);
+    }
+}
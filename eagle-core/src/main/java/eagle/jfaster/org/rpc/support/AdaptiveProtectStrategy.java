@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+package eagle.jfaster.org.rpc.support;
+
+import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.rpc.ProtectStrategy;
+import eagle.jfaster.org.rpc.RemoteInvoke;
+import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.rpc.Response;
+import eagle.jfaster.org.spi.SpiInfo;
+import eagle.jfaster.org.util.RequestUtil;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static eagle.jfaster.org.util.RequestUtil.buildRejectResponse;
+
+/**
+ *
+ * 自适应并发保护策略，每个服务和每个方法各有一个AdaptiveLimiter，
+ * 按实际处理耗时动态调整允许的并发数，两者都获取成功才执行，否则立即拒绝
+ *
+ * Created by fangyanpeng on 2018/4/21.
+ */
+@SpiInfo(name = "adaptive")
+public class AdaptiveProtectStrategy implements ProtectStrategy {
+
+    private final ConcurrentMap<String, AdaptiveLimiter> serviceLimiters = new ConcurrentHashMap<>();
+
+    //协商了方法id的请求按id对应的下标查找，下标被其它方法复用时重新创建
+    private volatile MethodLimiter[] methodLimiters = new MethodLimiter[64];
+
+    //没有方法id的请求按方法描述查找
+    private final ConcurrentMap<String, AdaptiveLimiter> descLimiters = new ConcurrentHashMap<>();
+
+    @Override
+    public Response protect(Request request, RemoteInvoke invoker, int methodCnt) {
+        AdaptiveLimiter serviceLimiter = getServiceLimiter(request, invoker);
+        if (!serviceLimiter.tryAcquire()) {
+            return reject(request, serviceLimiter);
+        }
+        AdaptiveLimiter methodLimiter = getMethodLimiter(request, invoker);
+        if (!methodLimiter.tryAcquire()) {
+            serviceLimiter.release();
+            return reject(request, methodLimiter);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Response response = invoker.invoke(request);
+            success = true;
+            return response;
+        } finally {
+            if (success) {
+                long rtt = System.nanoTime() - start;
+                methodLimiter.release(rtt);
+                serviceLimiter.release(rtt);
+            } else {
+                methodLimiter.release();
+                serviceLimiter.release();
+            }
+        }
+    }
+
+    private Response reject(Request request, AdaptiveLimiter limiter) {
+        return buildRejectResponse(String.format("Not allow invoke service '%s' because of too many invoke at the same time, limit '%d'", RequestUtil.getRequestDesc(request), limiter.getLimit()));
+    }
+
+    private AdaptiveLimiter getServiceLimiter(Request request, RemoteInvoke invoker) {
+        AdaptiveLimiter limiter = serviceLimiters.get(request.getInterfaceName());
+        if (limiter == null) {
+            serviceLimiters.putIfAbsent(request.getInterfaceName(), newLimiter(invoker));
+            limiter = serviceLimiters.get(request.getInterfaceName());
+        }
+        return limiter;
+    }
+
+    private AdaptiveLimiter getMethodLimiter(Request request, RemoteInvoke invoker) {
+        int methodId = request.getMethodId();
+        if (methodId <= 0) {
+            String reqKey = RequestUtil.getRequestDesc(request);
+            AdaptiveLimiter limiter = descLimiters.get(reqKey);
+            if (limiter == null) {
+                descLimiters.putIfAbsent(reqKey, newLimiter(invoker));
+                limiter = descLimiters.get(reqKey);
+            }
+            return limiter;
+        }
+        int slot = MethodTable.slot(methodId);
+        MethodLimiter[] limiters = methodLimiters;
+        if (slot < limiters.length && limiters[slot] != null && limiters[slot].methodId == methodId) {
+            return limiters[slot].limiter;
+        }
+        return addMethodLimiter(methodId, slot, invoker);
+    }
+
+    private synchronized AdaptiveLimiter addMethodLimiter(int methodId, int slot, RemoteInvoke invoker) {
+        MethodLimiter[] limiters = methodLimiters;
+        if (slot >= limiters.length) {
+            limiters = Arrays.copyOf(limiters, Math.max(limiters.length << 1, slot + 1));
+        } else if (limiters[slot] != null && limiters[slot].methodId == methodId) {
+            return limiters[slot].limiter;
+        } else {
+            limiters = limiters.clone();
+        }
+        AdaptiveLimiter limiter = newLimiter(invoker);
+        limiters[slot] = new MethodLimiter(methodId, limiter);
+        methodLimiters = limiters;
+        return limiter;
+    }
+
+    /**
+     * 并发上限不超过业务线程数，初始为1/4，由实际耗时决定增减
+     */
+    private AdaptiveLimiter newLimiter(RemoteInvoke invoker) {
+        int maxWorkerThread = invoker.getConfig().getExtInt(ConfigEnum.maxWorkerThread.getName(), ConfigEnum.maxWorkerThread.getIntValue());
+        return new AdaptiveLimiter(maxWorkerThread / 4, 1, maxWorkerThread);
+    }
+
+    @RequiredArgsConstructor
+    private static class MethodLimiter {
+
+        private final int methodId;
+
+        private final AdaptiveLimiter limiter;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+package eagle.jfaster.org.rpc.support;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 取消请求，调用方放弃等待(超时或对冲请求已经返回)时通知服务端不再处理opaque对应的请求
+ *
+ * Created by fangyanpeng on 2018/4/23.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CancelRequest {
+
+    private final int opaque;
+}
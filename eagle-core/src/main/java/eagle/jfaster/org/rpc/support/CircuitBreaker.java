@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.rpc.support;
+
+import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.logging.InternalLogger;
+import eagle.jfaster.org.logging.InternalLoggerFactory;
+import eagle.jfaster.org.util.UtilityUtil;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * refer级的熔断器。按时间滑动窗口统计失败率和慢调用率，超过阈值后熔断(open)，
+ * 熔断breakerOpenTime后进入半开(half-open)，放行breakerProbes个探测请求，全部成功则恢复(closed)，
+ * 任一失败或变慢则重新熔断。状态变化时回调listener
+ *
+ * Created by fangyanpeng on 2018/4/24.
+ */
+public class CircuitBreaker {
+
+    private final static InternalLogger logger = InternalLoggerFactory.getInstance(CircuitBreaker.class);
+
+    private static final ScheduledExecutorService breakerExecutor = Executors.newSingleThreadScheduledExecutor(new UtilityUtil.DefaultThreadFactory("EagleCircuitBreakerThread", true));
+
+    private static final int CLOSED = 0;
+
+    private static final int OPEN = 1;
+
+    private static final int HALF_OPEN = 2;
+
+    private static final int BUCKETS = 10;
+
+    private final String identity;
+
+    private final long bucketMillis;
+
+    private final int minCalls;
+
+    private final int errorRate;
+
+    // 小于0时按每次调用的超时时间的一半判断慢调用
+    private final long slowCallNanos;
+
+    private final int slowCallRate;
+
+    private final long openMillis;
+
+    private final int probes;
+
+    private final Runnable listener;
+
+    private final Bucket[] buckets = new Bucket[BUCKETS];
+
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+
+    // 半开状态下剩余的探测请求数
+    private final AtomicInteger probePermits = new AtomicInteger(0);
+
+    private final AtomicInteger probeSuccess = new AtomicInteger(0);
+
+    public CircuitBreaker(MergeConfig config, Runnable listener) {
+        this.identity = config.identity();
+        this.bucketMillis = Math.max(config.getExtLong(ConfigEnum.breakerWindow.getName(), ConfigEnum.breakerWindow.getLongValue()) / BUCKETS, 1);
+        this.minCalls = config.getExtInt(ConfigEnum.breakerMinCalls.getName(), ConfigEnum.breakerMinCalls.getIntValue());
+        this.errorRate = config.getExtInt(ConfigEnum.breakerErrorRate.getName(), ConfigEnum.breakerErrorRate.getIntValue());
+        long slowCallTime = config.getExtLong(ConfigEnum.breakerSlowCallTime.getName(), ConfigEnum.breakerSlowCallTime.getLongValue());
+        this.slowCallNanos = slowCallTime < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(slowCallTime);
+        this.slowCallRate = config.getExtInt(ConfigEnum.breakerSlowCallRate.getName(), ConfigEnum.breakerSlowCallRate.getIntValue());
+        this.openMillis = config.getExtLong(ConfigEnum.breakerOpenTime.getName(), ConfigEnum.breakerOpenTime.getLongValue());
+        this.probes = Math.max(config.getExtInt(ConfigEnum.breakerProbes.getName(), ConfigEnum.breakerProbes.getIntValue()), 1);
+        this.listener = listener;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    public boolean allowRequest() {
+        int current = state.get();
+        if (current == CLOSED) {
+            return true;
+        }
+        if (current == OPEN) {
+            return false;
+        }
+        while (true) {
+            int permits = probePermits.get();
+            if (permits <= 0) {
+                return false;
+            }
+            if (probePermits.compareAndSet(permits, permits - 1)) {
+                //探测名额用完，通知路由把它摘掉，等探测结果出来再决定是否恢复
+                if (permits == 1) {
+                    listener.run();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 调用被取消没有结果时归还半开状态下拿到的探测名额
+     */
+    public void abandon() {
+        if (state.get() == HALF_OPEN && probePermits.getAndIncrement() == 0) {
+            listener.run();
+        }
+    }
+
+    /**
+     * 关闭状态，或者半开状态下还有探测名额时才参与路由
+     */
+    public boolean isAvailable() {
+        int current = state.get();
+        return current == CLOSED || (current == HALF_OPEN && probePermits.get() > 0);
+    }
+
+    /**
+     * 记录一次调用结果，elapsedNanos为0时不判断慢调用，timeoutNanos是这次调用的超时时间
+     */
+    public void record(boolean failed, long elapsedNanos, long timeoutNanos) {
+        long slowNanos = slowCallNanos < 0 ? timeoutNanos / 2 : slowCallNanos;
+        boolean slow = slowNanos > 0 && elapsedNanos > slowNanos;
+        int current = state.get();
+        if (current == HALF_OPEN) {
+            if (failed || slow) {
+                trip(HALF_OPEN);
+            } else if (probeSuccess.incrementAndGet() >= probes && state.compareAndSet(HALF_OPEN, CLOSED)) {
+                logger.info(String.format("Circuit breaker closed: '%s'", identity));
+                listener.run();
+            }
+            return;
+        }
+        if (current != CLOSED) {
+            return;
+        }
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        current(epoch).add(failed, slow);
+        // 成功且不慢的调用不会使比例升高，不需要计算
+        if (failed || slow) {
+            evaluate(epoch);
+        }
+    }
+
+    private void evaluate(long epoch) {
+        int total = 0;
+        int failures = 0;
+        int slows = 0;
+        for (Bucket bucket : buckets) {
+            if (bucket.epoch > epoch - BUCKETS) {
+                total += bucket.total.get();
+                failures += bucket.failures.get();
+                slows += bucket.slows.get();
+            }
+        }
+        if (total < minCalls) {
+            return;
+        }
+        if (failures * 100L >= (long) errorRate * total || (slowCallNanos != 0 && slows * 100L >= (long) slowCallRate * total)) {
+            trip(CLOSED);
+        }
+    }
+
+    private void trip(int from) {
+        if (!state.compareAndSet(from, OPEN)) {
+            return;
+        }
+        logger.warn(String.format("Circuit breaker open: '%s', retry after %dms", identity, openMillis));
+        breakerExecutor.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                halfOpen();
+            }
+        }, openMillis, TimeUnit.MILLISECONDS);
+        listener.run();
+    }
+
+    private void halfOpen() {
+        probeSuccess.set(0);
+        probePermits.set(probes);
+        for (Bucket bucket : buckets) {
+            bucket.reset(Long.MIN_VALUE);
+        }
+        if (state.compareAndSet(OPEN, HALF_OPEN)) {
+            logger.info(String.format("Circuit breaker half open: '%s'", identity));
+            listener.run();
+        }
+    }
+
+    private Bucket current(long epoch) {
+        Bucket bucket = buckets[(int) (epoch % BUCKETS)];
+        if (bucket.epoch != epoch) {
+            synchronized (bucket) {
+                if (bucket.epoch != epoch) {
+                    bucket.reset(epoch);
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private static class Bucket {
+
+        private volatile long epoch = Long.MIN_VALUE;
+
+        private final AtomicInteger total = new AtomicInteger(0);
+
+        private final AtomicInteger failures = new AtomicInteger(0);
+
+        private final AtomicInteger slows = new AtomicInteger(0);
+
+        void add(boolean failed, boolean slow) {
+            total.incrementAndGet();
+            if (failed) {
+                failures.incrementAndGet();
+            }
+            if (slow) {
+                slows.incrementAndGet();
+            }
+        }
+
+        void reset(long epoch) {
+            total.set(0);
+            failures.set(0);
+            slows.set(0);
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+package eagle.jfaster.org.rpc.support;
+
+import com.google.common.base.Strings;
+
+import java.util.Map;
+
+/**
+ * 请求截止时间，调用方在附件中携带剩余的超时时间(毫秒)，
+ * 服务端按收到请求的时间换算成本地截止时间，处理线程内发起的下游调用不会超过这个时间
+ *
+ * Created by fangyanpeng on 2018/4/22.
+ */
+public class DeadlineContext {
+
+    public static String DEADLINE_KEY = "deadline";
+
+    private static ThreadLocal<Long> deadlineManager = new ThreadLocal<>();
+
+    public static long getDeadline() {
+        Long deadline = deadlineManager.get();
+        return deadline == null ? 0 : deadline;
+    }
+
+    public static void setDeadline(long deadline) {
+        if (deadline > 0) {
+            deadlineManager.set(deadline);
+        }
+    }
+
+    public static void clear() {
+        deadlineManager.remove();
+    }
+
+    /**
+     * 根据请求携带的剩余时间计算本地截止时间，没有携带时返回0
+     */
+    public static long parseDeadline(Map<String, String> attachments, long receivedMillis) {
+        if (attachments == null) {
+            return 0;
+        }
+        String remaining = attachments.get(DEADLINE_KEY);
+        if (Strings.isNullOrEmpty(remaining)) {
+            return 0;
+        }
+        try {
+            return receivedMillis + Long.parseLong(remaining);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
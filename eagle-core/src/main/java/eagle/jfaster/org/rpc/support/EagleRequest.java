@@ -19,6 +19,7 @@ package eagle.jfaster.org.rpc.support;
 
 import com.google.common.collect.Maps;
 
+import eagle.jfaster.org.config.common.MethodPolicy;
 import eagle.jfaster.org.rpc.Request;
 import lombok.Setter;
 
@@ -43,6 +44,9 @@ public class EagleRequest implements Request {
     @Setter
     private String parameterDesc;
 
+    @Setter
+    private int methodId;
+
     @Setter
     private boolean needCompress = false;
 
@@ -52,6 +56,15 @@ public class EagleRequest implements Request {
     @Setter
     private Map<String, String> attachments;
 
+    @Setter
+    private transient MethodPolicy policy;
+
+    @Setter
+    private transient long deadline;
+
+    @Setter
+    private transient volatile boolean cancelled;
+
     @Override
     public int getOpaque() {
         return opaque;
@@ -72,11 +85,31 @@ public class EagleRequest implements Request {
         return parameterDesc;
     }
 
+    @Override
+    public int getMethodId() {
+        return methodId;
+    }
+
     @Override
     public Object[] getParameters() {
         return parameters;
     }
 
+    @Override
+    public MethodPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
     @Override
     public boolean isNeedCompress() {
         return needCompress;
@@ -17,6 +17,7 @@
 
 package eagle.jfaster.org.rpc.support;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 import eagle.jfaster.org.config.common.MergeConfig;
@@ -47,7 +48,11 @@ public class EagleRpcCglibRemoteInvoke<T> extends AbstractRemoteInvoke<T, Method
 
     @Override
     protected Object invoke(Request request, MethodProxy method) throws Throwable {
-        return method.invoke(invokeImpl, request.getParameters());
+        try {
+            return method.invoke(invokeImpl, request.getParameters());
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
     }
 
     private void initMethodInvoke(T proxy) {
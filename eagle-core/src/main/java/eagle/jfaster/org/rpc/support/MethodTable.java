@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.rpc.support;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+
+import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.rpc.RemoteInvoke;
+import eagle.jfaster.org.transport.InvokeRouter;
+import eagle.jfaster.org.util.ReflectUtil;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ *
+ * 服务端方法表，进程内每个暴露的方法分配一个整数id，
+ * 客户端建立连接时协商得到方法id后，请求中只需要携带id，服务端按数组下标直接找到调用方法。
+ * id低位是数组下标，注销后下标复用；高位是下标复用的代数，旧连接携带的过期id不会调到新方法
+ *
+ * Created by fangyanpeng on 2018/4/14.
+ */
+public class MethodTable {
+
+    private static final String LINE_SPLIT = "\n";
+
+    private static final char ID_SPLIT = ':';
+
+    private static final int SLOT_BITS = 20;
+
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+
+    private static final int GENERATION_MASK = (1 << (31 - SLOT_BITS)) - 1;
+
+    private static volatile MethodEntry[] entries = new MethodEntry[64];
+
+    private static int[] generations = new int[64];
+
+    public synchronized static int register(InvokeRouter<?, ?> router, RemoteInvoke<?> invoke, Method method) {
+        MethodEntry[] tab = entries;
+        int slot = 1;
+        while (slot < tab.length && tab[slot] != null) {
+            ++slot;
+        }
+        if (slot > SLOT_MASK) {
+            throw new EagleFrameException("Error too many exported methods, max '%d'", SLOT_MASK);
+        }
+        if (slot >= tab.length) {
+            tab = Arrays.copyOf(tab, tab.length << 1);
+            generations = Arrays.copyOf(generations, tab.length);
+        }
+        int generation = generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+        int id = (generation << SLOT_BITS) | slot;
+        String paramDesc = ReflectUtil.getMethodParamDesc(method);
+        String methodDesc = ReflectUtil.getMethodDesc(method.getName(), paramDesc);
+        Object resolved = invoke instanceof AbstractRemoteInvoke ? ((AbstractRemoteInvoke<?, ?>) invoke).methodInvoke.get(methodDesc) : null;
+        tab[slot] = new MethodEntry(id, router, invoke, resolved, invoke.getConfig().getInterfaceName(), method.getName(), paramDesc, methodDesc, method.getParameterTypes());
+        entries = tab;
+        return id;
+    }
+
+    /**
+     * 服务停止时注销方法，下标留给之后注册的方法复用
+     */
+    public synchronized static void unregister(RemoteInvoke<?> invoke) {
+        MethodEntry[] tab = entries.clone();
+        for (int i = 0; i < tab.length; i++) {
+            if (tab[i] != null && tab[i].invoke == invoke) {
+                tab[i] = null;
+            }
+        }
+        entries = tab;
+    }
+
+    public static MethodEntry get(int id) {
+        if (id <= 0) {
+            return null;
+        }
+        MethodEntry[] tab = entries;
+        int slot = slot(id);
+        MethodEntry entry = slot < tab.length ? tab[slot] : null;
+        return entry != null && entry.id == id ? entry : null;
+    }
+
+    /**
+     * id对应的数组下标，按方法缓存数据时可以用作下标
+     */
+    public static int slot(int id) {
+        return id & SLOT_MASK;
+    }
+
+    /**
+     * 某个端口上指定接口的方法表，格式为 id:methodDesc，多个以换行分隔
+     */
+    public static String describe(String interfaceName, int port) {
+        MethodEntry[] tab = entries;
+        StringBuilder builder = new StringBuilder();
+        for (MethodEntry entry : tab) {
+            if (entry != null && entry.interfaceName.equals(interfaceName) && entry.invoke.getConfig().getPort() == port) {
+                builder.append(entry.id).append(ID_SPLIT).append(entry.methodDesc).append(LINE_SPLIT);
+            }
+        }
+        return builder.toString();
+    }
+
+    public static Map<String, Integer> parse(String table) {
+        if (Strings.isNullOrEmpty(table)) {
+            return null;
+        }
+        String[] lines = table.split(LINE_SPLIT);
+        Map<String, Integer> methodIds = Maps.newHashMapWithExpectedSize(lines.length);
+        for (String line : lines) {
+            int idx = line.indexOf(ID_SPLIT);
+            if (idx > 0) {
+                methodIds.put(line.substring(idx + 1), Integer.parseInt(line.substring(0, idx)));
+            }
+        }
+        return methodIds;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class MethodEntry {
+
+        private final int id;
+
+        //方法所在端口的路由
+        private final InvokeRouter<?, ?> router;
+
+        private final RemoteInvoke<?> invoke;
+
+        //已解析好的调用方法，jdk代理为Method，cglib代理为MethodProxy
+        private final Object method;
+
+        private final String interfaceName;
+
+        private final String methodName;
+
+        private final String parameterDesc;
+
+        private final String methodDesc;
+
+        private final Class<?>[] parameterTypes;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.statistic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间衰减的响应时间指数加权平均，单位纳秒。
+ * 响应变慢时直接取新的耗时，变快时按衰减窗口逐步回落，长时间没有调用的节点耗时也会逐步衰减
+ *
+ * Created by fangyanpeng on 2018/4/19.
+ */
+public class LatencyEwma {
+
+    private final double decayNanos;
+
+    private final AtomicLong cost = new AtomicLong(Double.doubleToRawLongBits(0D));
+
+    private volatile long stamp = System.nanoTime();
+
+    public LatencyEwma(long decayWindow, TimeUnit unit) {
+        this.decayNanos = unit.toNanos(decayWindow);
+    }
+
+    public void update(long rttNanos) {
+        long now = System.nanoTime();
+        double weight = Math.exp(-Math.max(now - stamp, 0) / decayNanos);
+        stamp = now;
+        while (true) {
+            long prevBits = cost.get();
+            double prev = Double.longBitsToDouble(prevBits);
+            double next = rttNanos > prev ? rttNanos : prev * weight + rttNanos * (1 - weight);
+            if (cost.compareAndSet(prevBits, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    public long get() {
+        double current = Double.longBitsToDouble(cost.get());
+        if (current == 0D) {
+            return 0;
+        }
+        return (long) (current * Math.exp(-Math.max(System.nanoTime() - stamp, 0) / decayNanos));
+    }
+}
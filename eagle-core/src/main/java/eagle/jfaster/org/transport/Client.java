@@ -18,6 +18,7 @@
 package eagle.jfaster.org.transport;
 
 import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.rpc.ReferStateListener;
 import eagle.jfaster.org.rpc.Request;
 
 /**
@@ -29,9 +30,16 @@ public interface Client {
 
     boolean isAlive();
 
+    //可用状态变化时通知
+    void addStateListener(ReferStateListener listener);
+
+    void removeStateListener(ReferStateListener listener);
+
     void start();
 
     void shutdown(boolean shutdown);
 
     Object request(Request request);
+
+    void cancel(Request request);
 }
@@ -27,5 +27,15 @@ import eagle.jfaster.org.config.common.MergeConfig;
 public interface HeartBeat {
     String heartBeat();
 
+    /**
+     * 接口的方法id表，客户端建立连接时调用
+     */
+    String methodTable(String interfaceName);
+
+    /**
+     * 服务端支持的能力，逗号分隔，客户端建立连接时调用
+     */
+    String capabilities();
+
     MergeConfig getConfig();
 }
@@ -30,4 +30,6 @@ public interface InvokeRouter<I, O> {
     void addRemoteInvoke(RemoteInvoke invoke);
 
     boolean needExport();
+
+    void close();
 }
@@ -116,6 +116,18 @@ public class StandardThreadExecutor extends ThreadPoolExecutor {
         return maxSubmittedTaskCount;
     }
 
+    /**
+     * 从队列中移除还没有执行的任务，移除成功时同步减少提交计数
+     */
+    @Override
+    public boolean remove(Runnable task) {
+        boolean removed = super.remove(task);
+        if (removed) {
+            submittedTasksCount.decrementAndGet();
+        }
+        return removed;
+    }
+
     protected void afterExecute(Runnable r, Throwable t) {
         submittedTasksCount.decrementAndGet();
     }
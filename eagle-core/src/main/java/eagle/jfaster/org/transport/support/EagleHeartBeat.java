@@ -17,7 +17,10 @@
 
 package eagle.jfaster.org.transport.support;
 
+import static eagle.jfaster.org.constant.EagleConstants.CAPABILITY_CANCEL;
+
 import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.rpc.support.MethodTable;
 import eagle.jfaster.org.transport.HeartBeat;
 import lombok.RequiredArgsConstructor;
 
@@ -36,6 +39,16 @@ public class EagleHeartBeat implements HeartBeat {
         return "success";
     }
 
+    @Override
+    public String methodTable(String interfaceName) {
+        return MethodTable.describe(interfaceName, config.getPort());
+    }
+
+    @Override
+    public String capabilities() {
+        return CAPABILITY_CANCEL;
+    }
+
     @Override
     public MergeConfig getConfig() {
         return config;
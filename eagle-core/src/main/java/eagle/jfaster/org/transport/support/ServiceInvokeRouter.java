@@ -26,6 +26,7 @@ import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
 import eagle.jfaster.org.rpc.ProtectStrategy;
 import eagle.jfaster.org.rpc.support.EagleResponse;
+import eagle.jfaster.org.rpc.support.MethodTable;
 import eagle.jfaster.org.rpc.RemoteInvoke;
 import eagle.jfaster.org.rpc.Request;
 import eagle.jfaster.org.rpc.Response;
@@ -70,7 +71,14 @@ public class ServiceInvokeRouter implements InvokeRouter<Request, Response> {
     @Override
     public Response routeAndInvoke(Request message) {
         String serviceKey = message.getInterfaceName();
-        RemoteInvoke invoker = services.get(serviceKey);
+        RemoteInvoke invoker;
+        MethodTable.MethodEntry entry = MethodTable.get(message.getMethodId());
+        if (entry != null) {
+            //方法表是进程全局的，只能调用暴露在本端口上的服务
+            invoker = entry.getRouter() == this ? entry.getInvoke() : null;
+        } else {
+            invoker = services.get(serviceKey);
+        }
         if (invoker == null) {
             logger.info(String.format("Error invoke service '%s' not exist ", serviceKey));
             EagleResponse response = new EagleResponse();
@@ -96,6 +104,9 @@ public class ServiceInvokeRouter implements InvokeRouter<Request, Response> {
         }
         services.put(serviceKey, invoke);
         List<Method> methods = ReflectUtil.getPublicMethod(invoke.getInterface());
+        for (Method method : methods) {
+            MethodTable.register(this, invoke, method);
+        }
         methodCnt.addAndGet(methods.size());
     }
 
@@ -103,4 +114,13 @@ public class ServiceInvokeRouter implements InvokeRouter<Request, Response> {
     public boolean needExport() {
         return export.compareAndSet(false, true);
     }
+
+    @Override
+    public void close() {
+        for (RemoteInvoke<?> invoke : services.values()) {
+            MethodTable.unregister(invoke);
+        }
+        services.clear();
+        methodCnt.set(0);
+    }
 }
@@ -99,7 +99,7 @@ public class ConfigUtil {
         }
         for (MethodConfig mc : methodConfigs) {
             if (mc != null) {
-                collectConfigParams(data, mc, mc.getName() + "(" + mc.getArgumentTypes() + ")");
+                collectConfigParams(data, mc, ReflectUtil.getMethodDesc(mc.getName(), mc.getArgumentTypes()));
             }
         }
     }
@@ -97,9 +97,9 @@ public class ReflectUtil {
      */
     public static String getMethodDesc(String methodName, String paramDesc) {
         if (paramDesc == null) {
-            return String.format(METHOD_DESC_VOID, methodName);
+            return methodName + "()";
         } else {
-            return String.format(METHOD_DESC_PARAM, methodName, paramDesc);
+            return methodName + "(" + paramDesc + ")";
         }
     }
 
@@ -23,11 +23,14 @@ import eagle.jfaster.org.config.ConfigEnum;
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.rpc.Request;
 import eagle.jfaster.org.rpc.Response;
+import eagle.jfaster.org.rpc.support.EagleRequest;
 import eagle.jfaster.org.rpc.support.EagleResponse;
+import eagle.jfaster.org.rpc.support.OpaqueGenerator;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -53,6 +56,14 @@ public class RequestUtil {
         return (magicCode & EAGLE_REQ_PARAMETER) == EAGLE_REQ_PARAMETER;
     }
 
+    public static boolean isRequestWithMethodId(short magicCode) {
+        return (magicCode & EAGLE_REQ_METHOD_ID) == EAGLE_REQ_METHOD_ID;
+    }
+
+    public static boolean isCancel(short magicCode) {
+        return (magicCode & EAGLE_REQ_CANCEL) == EAGLE_REQ_CANCEL;
+    }
+
     public static boolean isCompress(short magicCode) {
         return (magicCode & EAGLE_COMPRESS_TYPE) == EAGLE_COMPRESS_TYPE;
     }
@@ -76,6 +87,25 @@ public class RequestUtil {
         return response;
     }
 
+    /**
+     * 复制请求并分配新的opaque，用于同一请求同时发往多个refer
+     */
+    public static EagleRequest copyRequest(Request request) {
+        EagleRequest copy = new EagleRequest();
+        copy.setOpaque(OpaqueGenerator.getOpaque());
+        copy.setInterfaceName(request.getInterfaceName());
+        copy.setMethodName(request.getMethodName());
+        copy.setParameterDesc(request.getParameterDesc());
+        copy.setParameters(request.getParameters());
+        copy.setNeedCompress(request.isNeedCompress());
+        copy.setPolicy(request.getPolicy());
+        copy.setDeadline(request.getDeadline());
+        if (request.getAttachments() != null) {
+            copy.setAttachments(new HashMap<>(request.getAttachments()));
+        }
+        return copy;
+    }
+
     public static Response buildRejectResponse(String info) {
         EagleResponse response = new EagleResponse();
         response.setException(new EagleFrameException(info));
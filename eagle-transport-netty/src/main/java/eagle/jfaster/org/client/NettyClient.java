@@ -18,8 +18,14 @@
 package eagle.jfaster.org.client;
 
 import static eagle.jfaster.org.constant.EagleConstants.ASYNC_TIMEOUT_TIMER_PERIOD;
-import static eagle.jfaster.org.constant.EagleConstants.GRUOUP_WORKER_THREAD;
-import static eagle.jfaster.org.constant.EagleConstants.NETTY_TIMEOUT_TIMER_PERIOD;
+import static eagle.jfaster.org.constant.EagleConstants.CAPABILITIES_METHOD_NAME;
+import static eagle.jfaster.org.constant.EagleConstants.COMMA_SPLIT_PATTERN;
+import static eagle.jfaster.org.constant.EagleConstants.HEARTBEAT_INTERFACE_NAME;
+import static eagle.jfaster.org.constant.EagleConstants.METHOD_TABLE_METHOD_NAME;
+import static eagle.jfaster.org.constant.EagleConstants.NETTY_CALLBACK_TABLE_SIZE;
+import static eagle.jfaster.org.constant.EagleConstants.NETTY_TIMEOUT_DELAY;
+import static eagle.jfaster.org.constant.EagleConstants.NETTY_TIMEOUT_TICK;
+import static eagle.jfaster.org.constant.EagleConstants.NETTY_TIMEOUT_WHEEL_SIZE;
 import static eagle.jfaster.org.constant.EagleConstants.SOCKET_RCVBUF_SIZE;
 import static eagle.jfaster.org.constant.EagleConstants.SOCKET_SNDBUF_SIZE;
 import static eagle.jfaster.org.util.InterceptorUtil.onAfter;
@@ -27,10 +33,12 @@ import static eagle.jfaster.org.util.InterceptorUtil.onBefore;
 import static eagle.jfaster.org.util.InterceptorUtil.onError;
 
 import java.net.InetSocketAddress;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
@@ -40,26 +48,39 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.base.Strings;
+import com.google.common.collect.Sets;
+
 import eagle.jfaster.org.client.channel.AbstractNettyChannel;
 import eagle.jfaster.org.client.channel.AsyncNettyChannel;
 import eagle.jfaster.org.client.channel.SyncNettyChannel;
 import eagle.jfaster.org.client.handler.AsyncMessageHandler;
 import eagle.jfaster.org.client.handler.SyncMessageHandler;
+import eagle.jfaster.org.client.pool.NettyConnPool;
+import eagle.jfaster.org.client.pool.NettyEndpointConnPool;
+import eagle.jfaster.org.client.pool.NettyMultiplexConnPool;
 import eagle.jfaster.org.client.pool.NettySharedConnPool;
 import eagle.jfaster.org.codec.Codec;
 import eagle.jfaster.org.codec.Serialization;
+import eagle.jfaster.org.coder.NettyCodec;
 import eagle.jfaster.org.coder.NettyDecorder;
 import eagle.jfaster.org.coder.NettyEncoder;
 import eagle.jfaster.org.config.ConfigEnum;
 import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.exception.EagleCancelledException;
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.interceptor.ExecutionInterceptor;
 import eagle.jfaster.org.interceptor.context.CurrentExecutionContext;
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
 import eagle.jfaster.org.rpc.MethodInvokeCallBack;
+import eagle.jfaster.org.rpc.ReferStateListener;
 import eagle.jfaster.org.rpc.Request;
 import eagle.jfaster.org.rpc.ResponseFuture;
+import eagle.jfaster.org.rpc.support.CancelRequest;
+import eagle.jfaster.org.rpc.support.EagleRequest;
+import eagle.jfaster.org.rpc.support.MethodTable;
+import eagle.jfaster.org.rpc.support.OpaqueGenerator;
 import eagle.jfaster.org.spi.SpiClassLoader;
 import eagle.jfaster.org.statistic.EagleStatsManager;
 import eagle.jfaster.org.statistic.StatisticCallback;
@@ -77,16 +98,16 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollSocketChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 
 /**
  * netty 客户端
@@ -113,25 +134,28 @@ public class NettyClient implements Client, StatisticCallback {
     @Getter
     private AtomicBoolean stat = new AtomicBoolean(false);
 
-    @Setter
     private volatile boolean suspend = false;
 
+    private final List<ReferStateListener> stateListeners = new CopyOnWriteArrayList<>();
+
     private AtomicBoolean init = new AtomicBoolean(false);
 
     // 连续失败次数
     private AtomicLong errorCount = new AtomicLong(0);
 
+    // 在途请求表，共享连接时和同一个endpoint上的其他client共用
     @Getter
-    private Map<Integer, NettyResponseFuture> callbackMap = new ConcurrentHashMap(256);
+    private ResponseFutureTable callbackTable;
+
+    // 是否和同一个host:port上的其他接口共享连接
+    private boolean shareConnection;
 
     private ScheduledFuture<?> asyncCallbackMonitorFuture = null;
 
     private ScheduledFuture<?> heartBeatTaskFuture = null;
 
-    private ScheduledFuture<?> callbackCancelFuture = null;
-
-    // 回收过期任务
-    private static ScheduledExecutorService callbackCancelExecutor = Executors.newScheduledThreadPool(4);
+    // 回收过期任务，进程内所有client共用一个时间轮
+    private static Timer timeoutTimer = new HashedWheelTimer(new DefaultThreadFactory("Request timeout timer", true), NETTY_TIMEOUT_TICK, TimeUnit.MILLISECONDS, NETTY_TIMEOUT_WHEEL_SIZE);
 
     private static ScheduledExecutorService commonExecutor = Executors.newScheduledThreadPool(1);
 
@@ -144,9 +168,15 @@ public class NettyClient implements Client, StatisticCallback {
     //最大连续失败次数
     private int maxInvokeError = 0;
 
+    // 开启refer级熔断时不再按连续失败次数摘除client
+    private boolean circuitBreaker;
+
     private InetSocketAddress remoteAddress;
 
-    private NettySharedConnPool connPool;
+    @Getter
+    private volatile NettyConnPool connPool;
+
+    private Codec codec;
 
     @Override
     public void start() {
@@ -154,6 +184,7 @@ public class NettyClient implements Client, StatisticCallback {
             if (init.compareAndSet(false, true)) {
                 remoteAddress = new InetSocketAddress(config.getHost(), config.getPort());
                 maxInvokeError = config.getExtInt(ConfigEnum.maxInvokeError.getName(), ConfigEnum.maxInvokeError.getIntValue());
+                circuitBreaker = config.getExtBoolean(ConfigEnum.circuitBreaker.getName(), ConfigEnum.circuitBreaker.isBooleanValue());
                 if (callBack != null) {
                     int callbackWorkerThread = config.getExtInt(ConfigEnum.callbackThread.getName(), ConfigEnum.callbackThread.getIntValue());
                     int callbackQueueSize = config.getExtInt(ConfigEnum.callbackQueueSize.getName(), ConfigEnum.callbackQueueSize.getIntValue());
@@ -162,39 +193,24 @@ public class NettyClient implements Client, StatisticCallback {
                     callbackExecutor.allowCoreThreadTimeOut(true);
                     asyncCallbackMonitorFuture = commonExecutor.scheduleWithFixedDelay(new AsyncCallbackMonitor(this), ASYNC_TIMEOUT_TIMER_PERIOD, ASYNC_TIMEOUT_TIMER_PERIOD, TimeUnit.MILLISECONDS);
                 }
-                boolean useNative = RemotingUtil.isLinuxPlatform() && config.getExtBoolean(ConfigEnum.useNative.getName(), ConfigEnum.useNative.isBooleanValue());
-                if (useNative) {
-                    workerGroup = new EpollEventLoopGroup(GRUOUP_WORKER_THREAD, new DefaultThreadFactory("Method invoke exec-" + config.getInterfaceName() + "-"));
+                int heartBeatInterval = config.getExtInt(ConfigEnum.heartbeat.getName(), ConfigEnum.heartbeat.getIntValue());
+                shareConnection = config.getExtBoolean(ConfigEnum.shareConnection.getName(), ConfigEnum.shareConnection.isBooleanValue());
+                if (shareConnection) {
+                    //同一个host:port上的接口共用连接和在途请求表
+                    NettyEndpoint endpoint = NettyEndpoint.acquire(config);
+                    codec = endpoint.getCodec();
+                    callbackTable = endpoint.getCallbackTable();
+                    connPool = new NettyEndpointConnPool(this, endpoint);
                 } else {
-                    workerGroup = new NioEventLoopGroup(GRUOUP_WORKER_THREAD, new DefaultThreadFactory("Method invoke exec-" + config.getInterfaceName() + "-"));
+                    callbackTable = new ResponseFutureTable(NETTY_CALLBACK_TABLE_SIZE);
+                    initBootstrap(heartBeatInterval);
+                    int multiplexConnection = config.getExtInt(ConfigEnum.multiplexConnection.getName(), ConfigEnum.multiplexConnection.getIntValue());
+                    connPool = multiplexConnection > 0 ? new NettyMultiplexConnPool(config, this, multiplexConnection) : new NettySharedConnPool(config, this);
                 }
-                bootstrap = new Bootstrap();
-                final int maxContentLen = config.getExtInt(ConfigEnum.maxContentLength.getName(), ConfigEnum.maxContentLength.getIntValue());
-                final Codec codec = SpiClassLoader.getClassLoader(Codec.class).getExtension(config.getExt(ConfigEnum.codec.getName(), ConfigEnum.codec.getValue()));
-                final Serialization serialization = SpiClassLoader.getClassLoader(Serialization.class).getExtension(config.getExt(ConfigEnum.serialization.getName(), ConfigEnum.serialization.getValue()));
-                final int heartBeatInterval = config.getExtInt(ConfigEnum.heartbeat.getName(), ConfigEnum.heartbeat.getIntValue());
-                bootstrap.group(workerGroup).channel(useNative ? EpollSocketChannel.class : NioSocketChannel.class)
-                        .option(ChannelOption.TCP_NODELAY, true)
-                        .option(ChannelOption.SO_KEEPALIVE, false)
-                        .option(ChannelOption.SO_SNDBUF, SOCKET_SNDBUF_SIZE)
-                        .option(ChannelOption.SO_RCVBUF, SOCKET_RCVBUF_SIZE)
-                        .handler(new ChannelInitializer<SocketChannel>() {
-                            @Override
-                            protected void initChannel(SocketChannel sc) throws Exception {
-                                sc.pipeline().addLast(new NettyEncoder(codec, serialization))
-                                        .addLast(new NettyDecorder(maxContentLen, codec, serialization))
-                                        .addLast(new IdleStateHandler(0, 0, heartBeatInterval))
-                                        .addLast(new NettyConnectionManager(config, connPool, NettyClient.this))
-                                        .addLast(NettyClient.this.callBack == null ? new SyncMessageHandler(NettyClient.this) : new AsyncMessageHandler(NettyClient.this));
-                            }
-                        });
-                //定时扫描超时的请求
-                callbackCancelFuture = callbackCancelExecutor.scheduleWithFixedDelay(new TimeoutMonitorTask(this), NETTY_TIMEOUT_TIMER_PERIOD, NETTY_TIMEOUT_TIMER_PERIOD, TimeUnit.MICROSECONDS);
-                connPool = new NettySharedConnPool(config, this);
                 heartBeatTaskFuture = commonExecutor.scheduleWithFixedDelay(new HeartBeatTask(config, connPool, this), heartBeatInterval, heartBeatInterval, TimeUnit.SECONDS);
                 EagleStatsManager.registerStatsCallback(this);
                 stat.set(true);
-
+                fireStateChange();
             }
         } catch (Throwable e) {
             logger.error("Error start netty client ", e);
@@ -202,19 +218,153 @@ public class NettyClient implements Client, StatisticCallback {
         }
     }
 
+    private void initBootstrap(final int heartBeatInterval) {
+        boolean useNative = RemotingUtil.isLinuxPlatform() && config.getExtBoolean(ConfigEnum.useNative.getName(), ConfigEnum.useNative.isBooleanValue());
+        int workerThread = config.getExtInt(ConfigEnum.clientWorkerThread.getName(), ConfigEnum.clientWorkerThread.getIntValue());
+        workerGroup = NettyEventLoopGroupHolder.acquire(useNative, workerThread);
+        bootstrap = new Bootstrap();
+        final int maxContentLen = config.getExtInt(ConfigEnum.maxContentLength.getName(), ConfigEnum.maxContentLength.getIntValue());
+        codec = SpiClassLoader.getClassLoader(Codec.class).getExtension(config.getExt(ConfigEnum.codec.getName(), ConfigEnum.codec.getValue()));
+        final Serialization serialization = SpiClassLoader.getClassLoader(Serialization.class).getExtension(config.getExt(ConfigEnum.serialization.getName(), ConfigEnum.serialization.getValue()));
+        final int flushConsolidation = config.getExtInt(ConfigEnum.flushConsolidation.getName(), ConfigEnum.flushConsolidation.getIntValue());
+        bootstrap.group(workerGroup).channel(useNative ? EpollSocketChannel.class : NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, false)
+                .option(ChannelOption.SO_SNDBUF, SOCKET_SNDBUF_SIZE)
+                .option(ChannelOption.SO_RCVBUF, SOCKET_RCVBUF_SIZE)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel sc) throws Exception {
+                        if (flushConsolidation > 0) {
+                            //同一个eventLoop周期内的多次flush合并为一次系统调用
+                            sc.pipeline().addLast(new FlushConsolidationHandler(flushConsolidation, true));
+                        }
+                        sc.pipeline().addLast(new NettyEncoder(codec, serialization))
+                                .addLast(new NettyDecorder(maxContentLen, codec, serialization))
+                                .addLast(new IdleStateHandler(0, 0, heartBeatInterval))
+                                .addLast(new NettyConnectionManager(config, NettyClient.this))
+                                .addLast(NettyClient.this.callBack == null ? new SyncMessageHandler(NettyClient.this) : new AsyncMessageHandler(NettyClient.this));
+                    }
+                });
+    }
+
     //只有单线程执行该方法，不用加同步
     public AbstractNettyChannel newChannel() throws InterruptedException {
         ChannelFuture channelFuture = bootstrap.connect(remoteAddress).sync();
         Channel channel = channelFuture.channel();
+        negotiateCapabilities(channel);
+        if (codec instanceof NettyCodec) {
+            negotiateMethodTable(channel);
+        }
         return this.callBack == null ? new SyncNettyChannel(this, channel) : new AsyncNettyChannel(this, channel);
     }
 
-    public NettyResponseFuture removeCallBack(Integer opaque) {
-        return callbackMap.remove(opaque);
+    /**
+     * 向服务端获取接口的方法id表，之后该连接上的请求只携带方法id。服务端不支持时继续按方法名调用
+     */
+    public void negotiateMethodTable(Channel channel) {
+        NettyEncoder encoder = channel.pipeline().get(NettyEncoder.class);
+        try {
+            Map<String, Integer> methodIds = MethodTable.parse((String) callHeartBeat(channel, METHOD_TABLE_METHOD_NAME, String.class.getName(), config.getInterfaceName()));
+            encoder.putMethodIds(config.getInterfaceName(), methodIds == null ? Collections.<String, Integer>emptyMap() : methodIds);
+        } catch (Throwable e) {
+            logger.info(String.format("[%s] negotiate method table failed, invoke by method name: %s", config.identity(), e.getMessage()));
+        }
+    }
+
+    /**
+     * 向服务端获取支持的能力（比如取消请求），各种编码方式都协商，服务端不支持时按没有任何能力处理
+     */
+    public void negotiateCapabilities(Channel channel) {
+        NettyEncoder encoder = channel.pipeline().get(NettyEncoder.class);
+        Set<String> capabilities = Collections.emptySet();
+        try {
+            String value = (String) callHeartBeat(channel, CAPABILITIES_METHOD_NAME, null);
+            if (!Strings.isNullOrEmpty(value)) {
+                capabilities = Sets.newHashSet(COMMA_SPLIT_PATTERN.split(value));
+            }
+        } catch (Throwable e) {
+            logger.info(String.format("[%s] negotiate capabilities failed: %s", config.identity(), e.getMessage()));
+        }
+        encoder.setCapabilities(capabilities);
+    }
+
+    /**
+     * 在指定连接上同步调用服务端心跳服务的方法
+     */
+    private Object callHeartBeat(Channel channel, String methodName, String parameterDesc, Object... parameters) throws Exception {
+        EagleRequest request = new EagleRequest();
+        int opaque = OpaqueGenerator.getOpaque();
+        request.setOpaque(opaque);
+        request.setInterfaceName(HEARTBEAT_INTERFACE_NAME);
+        request.setMethodName(methodName);
+        if (parameterDesc != null) {
+            request.setParameterDesc(parameterDesc);
+            request.setParameters(parameters);
+        }
+        int timeout = config.getExtInt(ConfigEnum.requestTimeout.getName(), ConfigEnum.requestTimeout.getIntValue());
+        NettyResponseFuture future = new NettyResponseFuture(this, opaque, timeout, null, request);
+        future.setChannel(channel);
+        addCallBack(opaque, future);
+        try {
+            channel.writeAndFlush(request);
+            return future.getValue(timeout);
+        } finally {
+            removeCallBack(opaque);
+        }
     }
 
-    public void addCallBack(Integer opaque, NettyResponseFuture future) {
-        callbackMap.put(opaque, future);
+    /**
+     * 放弃等待的请求通知服务端取消，服务端不支持或者连接已经断开时忽略
+     */
+    public void sendCancel(NettyResponseFuture future) {
+        Channel channel = future.getChannel();
+        if (channel == null || !channel.isActive()) {
+            return;
+        }
+        NettyEncoder encoder = channel.pipeline().get(NettyEncoder.class);
+        if (encoder != null && encoder.supportCancel()) {
+            channel.writeAndFlush(new CancelRequest(future.getOpaque()));
+        }
+    }
+
+    /**
+     * 调用方放弃等待的同步请求：先标记请求，还没发送的在发送前检查标记；已经在途的唤醒等待线程并通知服务端取消
+     */
+    @Override
+    public void cancel(Request request) {
+        if (request instanceof EagleRequest) {
+            ((EagleRequest) request).setCancelled(true);
+        }
+        ResponseFutureTable table = callbackTable;
+        NettyResponseFuture future = table == null ? null : table.get(request.getOpaque());
+        if (future != null && future.cancel()) {
+            sendCancel(future);
+        }
+    }
+
+    public NettyResponseFuture removeCallBack(int opaque) {
+        NettyResponseFuture future = callbackTable.remove(opaque);
+        if (future != null) {
+            future.cancelTimeout();
+        }
+        return future;
+    }
+
+    public void addCallBack(int opaque, NettyResponseFuture future) {
+        callbackTable.put(opaque, future);
+        //超时任务挂到时间轮上，收到响应时取消
+        future.setTimeout(timeoutTimer.newTimeout(new TimeoutMonitorTask(this, future), future.getTimeoutMillis() + NETTY_TIMEOUT_DELAY, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 兜底清理时间轮没有处理到的超时请求，比如注册超时任务时时间轮已经停止
+     */
+    public void expireCallBacks() {
+        for (NettyResponseFuture future : callbackTable.removeExpired(System.currentTimeMillis(), NETTY_TIMEOUT_DELAY)) {
+            future.cancelTimeout();
+            TimeoutMonitorTask.expire(this, future);
+        }
     }
 
     public void executeInvokeCallback(final ResponseFuture responseFuture) {
@@ -253,11 +403,11 @@ public class NettyClient implements Client, StatisticCallback {
     public void shutdown(boolean shutdown) {
         try {
             if (init.compareAndSet(true, false)) {
-                workerGroup.shutdownGracefully();
-                //不能关闭callBackCancleExecutor，因为是多个client公用的。
-                callbackCancelFuture.cancel(true);
+                //IO线程池是共用的，最后一个client关闭时才真正关闭
+                NettyEventLoopGroupHolder.release(workerGroup);
+                //不能关闭timeoutTimer，因为是多个client公用的。
                 if (shutdown) {
-                    callbackCancelExecutor.shutdownNow();
+                    timeoutTimer.stop();
                 }
 
                 if (callbackExecutor != null) {
@@ -270,7 +420,9 @@ public class NettyClient implements Client, StatisticCallback {
                 if (shutdown) {
                     commonExecutor.shutdownNow();
                 }
-                callbackMap.clear();
+                if (!shareConnection) {
+                    callbackTable.clear();
+                }
                 connPool.shutdown();
                 logger.info("Netty client normal shutdown");
             }
@@ -283,10 +435,15 @@ public class NettyClient implements Client, StatisticCallback {
     public Object request(Request request) {
         AbstractNettyChannel channel = null;
         Throwable ex = null;
+        boolean cancelled = false;
         try {
             onBefore(request, interceptors);
             channel = connPool.getConnection();
             return channel.request(request, connPool);
+        } catch (EagleCancelledException e) {
+            //调用方主动放弃，连接和服务端都没有问题
+            cancelled = true;
+            throw e;
         } catch (Throwable e) {
             ex = e;
             logger.error("NettyClient request error, interface: '" + config.getInterfaceName() + "', host: '" + config.identity() + "'", e);
@@ -297,7 +454,7 @@ public class NettyClient implements Client, StatisticCallback {
         } finally {
             if (ex != null) {
                 onError(request, interceptors, ex);
-            } else if (callBack == null) { //同步调用直接执行onAfter
+            } else if (callBack == null && !cancelled) { //同步调用直接执行onAfter
                 onAfter(request, interceptors);
             }
             CurrentExecutionContext.clean();
@@ -309,11 +466,15 @@ public class NettyClient implements Client, StatisticCallback {
      * 联系调用失败超过配置的次数，将该client设置为无效
      */
     public void incrErrorCount() {
+        if (circuitBreaker) {
+            return;
+        }
         long count = errorCount.incrementAndGet();
         // 如果节点是可用状态，同时当前连续失败的次数超过限制maxClientConnection次，那么把该节点标示为不可用
         if (count >= maxInvokeError && stat.get()) {
             if (stat.compareAndSet(true, false)) {
                 logger.error("NettyClient unavailable Error: config='" + config.getInterfaceName() + "' '" + config.identity() + "'");
+                fireStateChange();
             }
         }
     }
@@ -325,21 +486,52 @@ public class NettyClient implements Client, StatisticCallback {
         errorCount.set(0);
         if (!stat.get() && init.get() && errorCount.intValue() < maxInvokeError && stat.compareAndSet(false, true)) {
             logger.info("NettyClient recover available: interfaceName='" + config.getInterfaceName() + "' '" + config.identity() + "'");
+            fireStateChange();
+        }
+    }
+
+    public void setSuspend(boolean suspend) {
+        if (this.suspend != suspend) {
+            this.suspend = suspend;
+            fireStateChange();
+        }
+    }
+
+    @Override
+    public void addStateListener(ReferStateListener listener) {
+        if (!stateListeners.contains(listener)) {
+            stateListeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeStateListener(ReferStateListener listener) {
+        stateListeners.remove(listener);
+    }
+
+    private void fireStateChange() {
+        for (ReferStateListener listener : stateListeners) {
+            try {
+                listener.onStateChange();
+            } catch (Throwable e) {
+                logger.error("Notify state change error: " + config.identity(), e);
+            }
         }
     }
 
     @Override
     public String statistic() {
+        int callbackSize = callbackTable.size();
         if (callbackQueue == null) {
-            if (callbackMap.size() < 100) {
+            if (callbackSize < 100) {
                 return null;
             }
         } else {
-            if (callbackMap.size() < 100 && callbackQueue.size() < 100) {
+            if (callbackSize < 100 && callbackQueue.size() < 100) {
                 return null;
             }
         }
-        return String.format("[%s] callbackMapSize: '%d' asyncCallbackQueueSize: '%d'", config.identity(), callbackMap.size(), callbackQueue == null ? 0 : callbackQueue.size());
+        return String.format("[%s] callbackMapSize: '%d' asyncCallbackQueueSize: '%d'", config.identity(), callbackSize, callbackQueue == null ? 0 : callbackQueue.size());
     }
 
 }
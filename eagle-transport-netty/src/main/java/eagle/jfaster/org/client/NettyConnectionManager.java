@@ -17,7 +17,7 @@
 
 package eagle.jfaster.org.client;
 
-import eagle.jfaster.org.client.pool.NettySharedConnPool;
+import eagle.jfaster.org.client.pool.NettyConnPool;
 import eagle.jfaster.org.config.ConfigEnum;
 import eagle.jfaster.org.config.common.MergeConfig;
 import eagle.jfaster.org.logging.InternalLogger;
@@ -46,8 +46,6 @@ public class NettyConnectionManager extends ChannelDuplexHandler {
 
     private final MergeConfig config;
 
-    private final NettySharedConnPool connPool;
-
     private final NettyClient client;
 
     @Override
@@ -77,7 +75,10 @@ public class NettyConnectionManager extends ChannelDuplexHandler {
         logger.warn("NETTY CLIENT PIPELINE: exceptionCaught {}", remoteAddress);
         logger.warn("NETTY CLIENT PIPELINE: exceptionCaught exception.", cause);
         //连接池标识为连接不可用
-        connPool.invalidateConnection(ctx.channel());
+        NettyConnPool connPool = client.getConnPool();
+        if (connPool != null) {
+            connPool.invalidateConnection(ctx.channel());
+        }
 
     }
 }
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.client;
+
+import static eagle.jfaster.org.constant.EagleConstants.NETTY_CALLBACK_TABLE_SIZE;
+import static eagle.jfaster.org.constant.EagleConstants.SOCKET_RCVBUF_SIZE;
+import static eagle.jfaster.org.constant.EagleConstants.SOCKET_SNDBUF_SIZE;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.collect.Maps;
+
+import eagle.jfaster.org.codec.Codec;
+import eagle.jfaster.org.codec.Serialization;
+import eagle.jfaster.org.coder.NettyDecorder;
+import eagle.jfaster.org.coder.NettyEncoder;
+import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.logging.InternalLogger;
+import eagle.jfaster.org.logging.InternalLoggerFactory;
+import eagle.jfaster.org.rpc.Response;
+import eagle.jfaster.org.spi.SpiClassLoader;
+import eagle.jfaster.org.transport.HeartBeatFactory;
+import eagle.jfaster.org.util.RemotingUtil;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Getter;
+
+/**
+ * 同一个host:port(以及相同的codec和序列化方式)上所有接口共享的连接，引用计数为0时关闭。
+ * 各个接口的请求共用一个在途请求表，响应按opaque找到发起请求的client，超时、回调等仍按各自接口的配置处理
+ *
+ * Created by fangyanpeng on 2018/4/17.
+ */
+public class NettyEndpoint {
+
+    private final static InternalLogger logger = InternalLoggerFactory.getInstance(NettyEndpoint.class);
+
+    private static final int CONNECTOR_THREAD = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    // 所有共享连接共用的建连线程，调用线程不建连
+    private static final ThreadPoolExecutor connectExecutor = new ThreadPoolExecutor(CONNECTOR_THREAD, CONNECTOR_THREAD, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DefaultThreadFactory("eagleEndpoint connector", true));
+
+    static {
+        connectExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private static final Map<String, NettyEndpoint> endpoints = Maps.newHashMap();
+
+    private final String key;
+
+    private final MergeConfig config;
+
+    @Getter
+    private final Codec codec;
+
+    @Getter
+    private final ResponseFutureTable callbackTable = new ResponseFutureTable(NETTY_CALLBACK_TABLE_SIZE);
+
+    private final AtomicReferenceArray<Channel> channels;
+
+    private final Object[] locks;
+
+    private final AtomicBoolean[] connecting;
+
+    private final AtomicInteger index = new AtomicInteger(0);
+
+    private final EventLoopGroup workerGroup;
+
+    private final Bootstrap bootstrap;
+
+    private final InetSocketAddress remoteAddress;
+
+    private int refCnt = 0;
+
+    private volatile boolean closed = false;
+
+    public synchronized static NettyEndpoint acquire(MergeConfig config) {
+        String key = endpointKey(config);
+        NettyEndpoint endpoint = endpoints.get(key);
+        if (endpoint == null) {
+            endpoint = new NettyEndpoint(key, config);
+            endpoints.put(key, endpoint);
+            logger.info(String.format("Create shared endpoint: %s", key));
+        }
+        ++endpoint.refCnt;
+        return endpoint;
+    }
+
+    public static void release(NettyEndpoint endpoint) {
+        synchronized (NettyEndpoint.class) {
+            if (--endpoint.refCnt > 0) {
+                return;
+            }
+            endpoints.remove(endpoint.key);
+        }
+        endpoint.close();
+        logger.info(String.format("Close shared endpoint: %s", endpoint.key));
+    }
+
+    private static String endpointKey(MergeConfig config) {
+        return config.hostPort() + "-" + config.getExt(ConfigEnum.codec.getName(), ConfigEnum.codec.getValue()) + "-" + config.getExt(ConfigEnum.serialization.getName(), ConfigEnum.serialization.getValue());
+    }
+
+    private NettyEndpoint(String key, final MergeConfig config) {
+        this.key = key;
+        this.config = config;
+        int connectionNum = Math.max(1, config.getExtInt(ConfigEnum.multiplexConnection.getName(), ConfigEnum.multiplexConnection.getIntValue()));
+        this.channels = new AtomicReferenceArray<>(connectionNum);
+        this.locks = new Object[connectionNum];
+        this.connecting = new AtomicBoolean[connectionNum];
+        for (int i = 0; i < connectionNum; i++) {
+            locks[i] = new Object();
+            connecting[i] = new AtomicBoolean(false);
+        }
+        this.remoteAddress = new InetSocketAddress(config.getHost(), config.getPort());
+        boolean useNative = RemotingUtil.isLinuxPlatform() && config.getExtBoolean(ConfigEnum.useNative.getName(), ConfigEnum.useNative.isBooleanValue());
+        int workerThread = config.getExtInt(ConfigEnum.clientWorkerThread.getName(), ConfigEnum.clientWorkerThread.getIntValue());
+        this.workerGroup = NettyEventLoopGroupHolder.acquire(useNative, workerThread);
+        this.codec = SpiClassLoader.getClassLoader(Codec.class).getExtension(config.getExt(ConfigEnum.codec.getName(), ConfigEnum.codec.getValue()));
+        final Serialization serialization = SpiClassLoader.getClassLoader(Serialization.class).getExtension(config.getExt(ConfigEnum.serialization.getName(), ConfigEnum.serialization.getValue()));
+        final int maxContentLen = config.getExtInt(ConfigEnum.maxContentLength.getName(), ConfigEnum.maxContentLength.getIntValue());
+        final int heartBeatInterval = config.getExtInt(ConfigEnum.heartbeat.getName(), ConfigEnum.heartbeat.getIntValue());
+        final int flushConsolidation = config.getExtInt(ConfigEnum.flushConsolidation.getName(), ConfigEnum.flushConsolidation.getIntValue());
+        final EndpointHandler handler = new EndpointHandler();
+        this.bootstrap = new Bootstrap();
+        bootstrap.group(workerGroup).channel(useNative ? EpollSocketChannel.class : NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, false)
+                .option(ChannelOption.SO_SNDBUF, SOCKET_SNDBUF_SIZE)
+                .option(ChannelOption.SO_RCVBUF, SOCKET_RCVBUF_SIZE)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel sc) throws Exception {
+                        if (flushConsolidation > 0) {
+                            sc.pipeline().addLast(new FlushConsolidationHandler(flushConsolidation, true));
+                        }
+                        sc.pipeline().addLast(new NettyEncoder(codec, serialization))
+                                .addLast(new NettyDecorder(maxContentLen, codec, serialization))
+                                .addLast(new IdleStateHandler(0, 0, heartBeatInterval))
+                                .addLast(handler);
+                    }
+                });
+    }
+
+    /**
+     * 轮询选择连接，优先可写的连接。断开的连接交给建连线程重连，没有可用的连接时直接失败
+     */
+    public Channel getChannel() {
+        int size = channels.length();
+        int start = (index.getAndIncrement() & Integer.MAX_VALUE) % size;
+        Channel candidate = null;
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            Channel channel = channels.get(slot);
+            if (channel == null || !channel.isActive()) {
+                asyncConnect(slot);
+                continue;
+            }
+            if (channel.isWritable()) {
+                return channel;
+            }
+            if (candidate == null) {
+                candidate = channel;
+            }
+        }
+        if (candidate != null) {
+            return candidate;
+        }
+        throw new EagleFrameException("Shared endpoint %s has no active connection, reconnecting", key);
+    }
+
+    /**
+     * 还没有可用连接时在当前线程建立一条，只在接口初始化时调用，避免刚启动的调用全部失败
+     */
+    public void ensureConnected() {
+        if (getActiveConnections() > 0) {
+            return;
+        }
+        try {
+            connect(0);
+        } catch (Throwable e) {
+            logger.info(String.format("Connect shared endpoint %s failed: %s", key, e.getMessage()));
+        }
+    }
+
+    public void invalidate(Channel channel) {
+        for (int i = 0; i < channels.length(); i++) {
+            if (channels.get(i) == channel && channels.compareAndSet(i, channel, null)) {
+                RemotingUtil.closeChannel(channel, "NettyEndpoint invalidate");
+                asyncConnect(i);
+                return;
+            }
+        }
+    }
+
+    public int getActiveConnections() {
+        int total = 0;
+        for (int i = 0; i < channels.length(); i++) {
+            Channel channel = channels.get(i);
+            if (channel != null && channel.isActive()) {
+                ++total;
+            }
+        }
+        return total;
+    }
+
+    private void asyncConnect(final int slot) {
+        if (closed || !connecting[slot].compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            connectExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        connect(slot);
+                    } catch (Throwable e) {
+                        logger.info(String.format("Connect shared endpoint %s failed: %s", key, e.getMessage()));
+                    } finally {
+                        connecting[slot].set(false);
+                    }
+                }
+            });
+        } catch (Throwable e) {
+            connecting[slot].set(false);
+        }
+    }
+
+    /**
+     * 连接断开时，在这条连接上还没有返回的请求直接失败，不用等到超时
+     */
+    private void failInflight(Channel channel) {
+        for (NettyResponseFuture future : callbackTable.removeByChannel(channel)) {
+            future.cancelTimeout();
+            future.onFail(new EagleFrameException("Shared connection %s closed before response, opaque: [%d]", key, future.getOpaque()));
+            if (future.getCallBack() != null) {
+                future.getClient().executeInvokeCallback(future);
+            }
+        }
+    }
+
+    private Channel connect(int slot) {
+        synchronized (locks[slot]) {
+            Channel channel = channels.get(slot);
+            if (channel != null && channel.isActive()) {
+                return channel;
+            }
+            if (closed) {
+                throw new EagleFrameException("Shared endpoint %s has closed", key);
+            }
+            try {
+                Channel newChannel = bootstrap.connect(remoteAddress).sync().channel();
+                channels.set(slot, newChannel);
+                if (channel != null) {
+                    RemotingUtil.closeChannel(channel, "NettyEndpoint reconnect");
+                }
+                return newChannel;
+            } catch (InterruptedException e) {
+                throw new EagleFrameException("Interrupted during connect to %s", key);
+            } catch (Throwable e) {
+                throw new EagleFrameException("Connect to %s failed: %s", key, e.getMessage());
+            }
+        }
+    }
+
+    private void close() {
+        closed = true;
+        for (int i = 0; i < channels.length(); i++) {
+            Channel channel = channels.getAndSet(i, null);
+            if (channel != null) {
+                RemotingUtil.closeChannel(channel, "NettyEndpoint close");
+            }
+        }
+        callbackTable.clear();
+        NettyEventLoopGroupHolder.release(workerGroup);
+    }
+
+    /**
+     * 按opaque把响应交给发起请求的client，空闲时发送心跳，连接异常时移除连接
+     */
+    @ChannelHandler.Sharable
+    private class EndpointHandler extends SimpleChannelInboundHandler<Response> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Response response) throws Exception {
+            NettyResponseFuture future = callbackTable.remove(response.getOpaque());
+            if (future == null) {
+                return;
+            }
+            future.cancelTimeout();
+            if (response.getException() != null) {
+                future.onFail(response.getException());
+            } else {
+                future.onSuccess(response.getValue());
+            }
+            if (future.getCallBack() != null) {
+                future.getClient().executeInvokeCallback(future);
+            }
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent && ((IdleStateEvent) evt).state().equals(IdleState.ALL_IDLE)) {
+                HeartBeatFactory heartBeatFactory = SpiClassLoader.getClassLoader(HeartBeatFactory.class).getExtension(config.getExt(ConfigEnum.heartbeatFactory.getName(), ConfigEnum.heartbeatFactory.getValue()));
+                ctx.writeAndFlush(heartBeatFactory.createRequest());
+            }
+            ctx.fireUserEventTriggered(evt);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            failInflight(ctx.channel());
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            logger.warn("NETTY ENDPOINT PIPELINE: exceptionCaught " + RemotingUtil.parseChannelRemoteAddr(ctx.channel()), cause);
+            invalidate(ctx.channel());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.client;
+
+import eagle.jfaster.org.logging.InternalLogger;
+import eagle.jfaster.org.logging.InternalLoggerFactory;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * 进程内所有client共用的IO线程池，按传输类型(epoll/nio)各保留一个，引用计数为0时关闭
+ *
+ * Created by fangyanpeng on 2018/4/12.
+ */
+public class NettyEventLoopGroupHolder {
+
+    private final static InternalLogger logger = InternalLoggerFactory.getInstance(NettyEventLoopGroupHolder.class);
+
+    private static EventLoopGroup epollGroup;
+
+    private static int epollRefCnt = 0;
+
+    private static EventLoopGroup nioGroup;
+
+    private static int nioRefCnt = 0;
+
+    public synchronized static EventLoopGroup acquire(boolean useNative, int workerThread) {
+        if (useNative) {
+            if (epollGroup == null) {
+                epollGroup = new EpollEventLoopGroup(workerThread, new DefaultThreadFactory("Method invoke exec-epoll-"));
+                logger.info(String.format("Create shared epoll client group, threads: %d", workerThread));
+            }
+            ++epollRefCnt;
+            return epollGroup;
+        }
+        if (nioGroup == null) {
+            nioGroup = new NioEventLoopGroup(workerThread, new DefaultThreadFactory("Method invoke exec-nio-"));
+            logger.info(String.format("Create shared nio client group, threads: %d", workerThread));
+        }
+        ++nioRefCnt;
+        return nioGroup;
+    }
+
+    public synchronized static void release(EventLoopGroup group) {
+        if (group == null) {
+            return;
+        }
+        if (group == epollGroup) {
+            if (--epollRefCnt == 0) {
+                epollGroup.shutdownGracefully();
+                epollGroup = null;
+                logger.info("Shutdown shared epoll client group");
+            }
+        } else if (group == nioGroup) {
+            if (--nioRefCnt == 0) {
+                nioGroup.shutdownGracefully();
+                nioGroup = null;
+                logger.info("Shutdown shared nio client group");
+            }
+        }
+    }
+}
@@ -22,28 +22,53 @@ import static eagle.jfaster.org.util.InterceptorUtil.onError;
 
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
+import eagle.jfaster.org.exception.EagleCancelledException;
 import eagle.jfaster.org.interceptor.ExecutionInterceptor;
 import eagle.jfaster.org.interceptor.context.CurrentExecutionContext;
 import eagle.jfaster.org.rpc.MethodInvokeCallBack;
 import eagle.jfaster.org.rpc.Request;
 import eagle.jfaster.org.rpc.ResponseFuture;
 import eagle.jfaster.org.rpc.support.TraceContext;
+import io.netty.channel.Channel;
+import io.netty.util.Timeout;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
 /**
  * netty 异步处理future
  *
+ * 完成、回调、发送失败都记录在一个volatile的state里；同步等待先自旋一小段时间，
+ * 仍未返回再通过LockSupport挂起，响应到达时直接unpark等待线程
+ *
  * Created by fangyanpeng1 on 2017/8/1.
  */
-@RequiredArgsConstructor
 public class NettyResponseFuture<T> implements ResponseFuture<T> {
 
+    //已经收到结果或异常
+    private static final int DONE = 1;
+
+    //回调已经执行
+    private static final int CALLBACK_EXECUTED = 1 << 1;
+
+    //请求发送失败
+    private static final int SEND_FAILED = 1 << 2;
+
+    //调用方放弃等待
+    private static final int CANCELLED = 1 << 3;
+
+    //单核上自旋没有意义
+    private static final int SPIN_TRIES = Runtime.getRuntime().availableProcessors() > 1 ? 128 : 0;
+
+    private static final AtomicIntegerFieldUpdater<NettyResponseFuture> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(NettyResponseFuture.class, "state");
+
+    //发起请求的client，共享连接时用来找到回调线程池
+    @Getter
+    private final NettyClient client;
+
     //请求唯一标识
     @Getter
     private final int opaque;
@@ -59,36 +84,49 @@ public class NettyResponseFuture<T> implements ResponseFuture<T> {
     @Getter
     private final Request request;
 
+    //只有异步回调才需要恢复调用方的上下文
     @Getter
-    private final CurrentExecutionContext executionContext = CurrentExecutionContext.getContext();
+    private final CurrentExecutionContext executionContext;
 
     //请求开始时间
     @Getter
     private final long beginTimestamp = System.currentTimeMillis();
 
-    //线程等待
-    private final CountDownLatch waiter = new CountDownLatch(1);
+    private volatile int state;
 
-    //发送是否成功
+    //同步等待的线程
+    private volatile Thread waiter;
+
+    //正常结果，由state的写入保证可见性
     @Setter
-    @Getter
-    private volatile boolean sendRequestOK = true;
+    private T value;
 
-    //正常结果
+    //异常，由state的写入保证可见性
     @Setter
-    private volatile T value;
+    @Getter
+    private Exception exception;
+
+    //时间轮上的超时任务
+    private volatile Timeout timeout;
 
-    //异常
+    //发送请求的连接，放弃等待时在这个连接上发送取消请求，放入在途请求表之前设置
     @Setter
     @Getter
-    private volatile Exception exception;
+    private Channel channel;
 
-    //由于超时和正常回调有可能同时执行，要确保回调只执行一次
-    private AtomicBoolean executeCallBackOnlyOnce = new AtomicBoolean(false);
+    public NettyResponseFuture(NettyClient client, int opaque, long timeoutMillis, MethodInvokeCallBack<T> callBack, Request request) {
+        this.client = client;
+        this.opaque = opaque;
+        this.timeoutMillis = timeoutMillis;
+        this.callBack = callBack;
+        this.request = request;
+        this.executionContext = callBack == null ? null : CurrentExecutionContext.getContext();
+    }
 
     @Override
     public void executeCallback(List<ExecutionInterceptor> interceptors) {
-        if (callBack != null && executeCallBackOnlyOnce.compareAndSet(false, true)) {
+        //由于超时和正常回调有可能同时执行，要确保回调只执行一次
+        if (callBack != null && setState(CALLBACK_EXECUTED)) {
             CurrentExecutionContext.setContext(executionContext);
             Map<String, String> attachments = request.getAttachments();
             if (attachments != null) {
@@ -109,6 +147,35 @@ public class NettyResponseFuture<T> implements ResponseFuture<T> {
         }
     }
 
+    public void setTimeout(Timeout timeout) {
+        this.timeout = timeout;
+        //注册超时任务前响应已经返回，直接取消
+        if ((state & (DONE | CALLBACK_EXECUTED)) != 0) {
+            timeout.cancel();
+        }
+    }
+
+    public void cancelTimeout() {
+        Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    public boolean isDone() {
+        return (state & DONE) != 0;
+    }
+
+    public boolean isSendRequestOK() {
+        return (state & SEND_FAILED) == 0;
+    }
+
+    public void setSendRequestOK(boolean sendRequestOK) {
+        if (!sendRequestOK) {
+            setState(SEND_FAILED);
+        }
+    }
+
     @Override
     public boolean isTimeout() {
         long diff = System.currentTimeMillis() - this.beginTimestamp;
@@ -117,7 +184,12 @@ public class NettyResponseFuture<T> implements ResponseFuture<T> {
 
     @Override
     public T getValue(long timeout) throws Exception {
-        this.waiter.await(timeout, TimeUnit.MILLISECONDS);
+        if (!isDone()) {
+            awaitDone(TimeUnit.MILLISECONDS.toNanos(timeout));
+        }
+        if ((state & CANCELLED) != 0) {
+            throw new EagleCancelledException("Request cancelled, opaque: [%d]", opaque);
+        }
         if (exception != null) {
             throw exception;
         }
@@ -127,12 +199,83 @@ public class NettyResponseFuture<T> implements ResponseFuture<T> {
     @Override
     public void onSuccess(T value) {
         this.value = value;
-        this.waiter.countDown();
+        done();
     }
 
     @Override
     public void onFail(Exception exception) {
         this.exception = exception;
-        this.waiter.countDown();
+        done();
+    }
+
+    /**
+     * 调用方放弃等待，只对还没有完成的同步请求生效，等待线程抛出EagleCancelledException
+     */
+    public boolean cancel() {
+        if (callBack != null) {
+            return false;
+        }
+        for (;;) {
+            int current = state;
+            if ((current & DONE) != 0) {
+                return false;
+            }
+            if (STATE_UPDATER.compareAndSet(this, current, current | DONE | CANCELLED)) {
+                break;
+            }
+        }
+        wakeUp();
+        return true;
+    }
+
+    private void done() {
+        setState(DONE);
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void awaitDone(long timeoutNanos) throws InterruptedException {
+        for (int i = 0; i < SPIN_TRIES; ++i) {
+            if ((state & DONE) != 0) {
+                return;
+            }
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        waiter = Thread.currentThread();
+        try {
+            while ((state & DONE) == 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    /**
+     * 设置状态位，已经设置过时返回false
+     */
+    private boolean setState(int bit) {
+        for (;;) {
+            int current = state;
+            if ((current & bit) != 0) {
+                return false;
+            }
+            if (STATE_UPDATER.compareAndSet(this, current, current | bit)) {
+                return true;
+            }
+        }
     }
 }
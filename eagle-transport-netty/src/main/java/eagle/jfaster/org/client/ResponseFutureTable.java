@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.netty.channel.Channel;
+
+/**
+ * 以int类型opaque为key的在途请求表。opaque是递增的，按opaque & mask直接定位槽位，
+ * 插入和删除都是一次CAS，不装箱也不分配节点；槽位被占用时（在途请求跨度超过容量）才落到溢出表
+ *
+ * Created by fangyanpeng on 2018/4/16.
+ */
+public class ResponseFutureTable {
+
+    private final AtomicReferenceArray<NettyResponseFuture> slots;
+
+    private final int mask;
+
+    private final ConcurrentMap<Integer, NettyResponseFuture> overflow = new ConcurrentHashMap<>();
+
+    public ResponseFutureTable(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public void put(int opaque, NettyResponseFuture future) {
+        if (!slots.compareAndSet(opaque & mask, null, future)) {
+            overflow.put(opaque, future);
+        }
+    }
+
+    public NettyResponseFuture get(int opaque) {
+        NettyResponseFuture future = slots.get(opaque & mask);
+        if (future != null && future.getOpaque() == opaque) {
+            return future;
+        }
+        return overflow.isEmpty() ? null : overflow.get(opaque);
+    }
+
+    public NettyResponseFuture remove(int opaque) {
+        int index = opaque & mask;
+        NettyResponseFuture future = slots.get(index);
+        if (future != null && future.getOpaque() == opaque && slots.compareAndSet(index, future, null)) {
+            return future;
+        }
+        return overflow.isEmpty() ? null : overflow.remove(opaque);
+    }
+
+    public boolean remove(int opaque, NettyResponseFuture future) {
+        return slots.compareAndSet(opaque & mask, future, null) || (!overflow.isEmpty() && overflow.remove(opaque, future));
+    }
+
+    /**
+     * 移除已经超过超时时间delay毫秒仍未返回的请求，由调用方负责通知
+     */
+    public List<NettyResponseFuture> removeExpired(long now, long delay) {
+        List<NettyResponseFuture> expired = null;
+        for (int i = 0; i < slots.length(); ++i) {
+            NettyResponseFuture future = slots.get(i);
+            if (future != null && isExpired(future, now, delay) && slots.compareAndSet(i, future, null)) {
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(future);
+            }
+        }
+        Iterator<Map.Entry<Integer, NettyResponseFuture>> it = overflow.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, NettyResponseFuture> entry = it.next();
+            NettyResponseFuture future = entry.getValue();
+            if (isExpired(future, now, delay) && overflow.remove(entry.getKey(), future)) {
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(future);
+            }
+        }
+        return expired == null ? Collections.<NettyResponseFuture>emptyList() : expired;
+    }
+
+    /**
+     * 移除在指定连接上发出的请求，连接断开时由调用方通知失败
+     */
+    public List<NettyResponseFuture> removeByChannel(Channel channel) {
+        List<NettyResponseFuture> removed = null;
+        for (int i = 0; i < slots.length(); ++i) {
+            NettyResponseFuture future = slots.get(i);
+            if (future != null && future.getChannel() == channel && slots.compareAndSet(i, future, null)) {
+                if (removed == null) {
+                    removed = new ArrayList<>();
+                }
+                removed.add(future);
+            }
+        }
+        Iterator<Map.Entry<Integer, NettyResponseFuture>> it = overflow.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, NettyResponseFuture> entry = it.next();
+            NettyResponseFuture future = entry.getValue();
+            if (future.getChannel() == channel && overflow.remove(entry.getKey(), future)) {
+                if (removed == null) {
+                    removed = new ArrayList<>();
+                }
+                removed.add(future);
+            }
+        }
+        return removed == null ? Collections.<NettyResponseFuture>emptyList() : removed;
+    }
+
+    /**
+     * 需要遍历槽位，只用于统计
+     */
+    public int size() {
+        int size = overflow.size();
+        for (int i = 0; i < slots.length(); ++i) {
+            if (slots.get(i) != null) {
+                ++size;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); ++i) {
+            slots.set(i, null);
+        }
+        overflow.clear();
+    }
+
+    private static boolean isExpired(NettyResponseFuture future, long now, long delay) {
+        return now - future.getBeginTimestamp() > future.getTimeoutMillis() + delay;
+    }
+}
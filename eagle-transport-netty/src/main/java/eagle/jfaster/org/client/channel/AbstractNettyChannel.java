@@ -20,14 +20,17 @@ package eagle.jfaster.org.client.channel;
 import eagle.jfaster.org.client.NettyClient;
 import eagle.jfaster.org.client.NettyResponseFuture;
 import eagle.jfaster.org.client.pool.NettyPoolEntry;
-import eagle.jfaster.org.client.pool.NettySharedConnPool;
-import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.client.pool.NettyConnPool;
 import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.config.common.MethodPolicy;
+import eagle.jfaster.org.exception.EagleCancelledException;
+import eagle.jfaster.org.exception.EagleDeadlineException;
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
 import eagle.jfaster.org.rpc.MethodInvokeCallBack;
 import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.rpc.support.DeadlineContext;
 import eagle.jfaster.org.rpc.support.EagleRequest;
 import eagle.jfaster.org.util.RemotingUtil;
 import io.netty.channel.Channel;
@@ -70,15 +73,31 @@ public abstract class AbstractNettyChannel {
         sync = (callBack == null);
     }
 
-    public Object request(Request request, NettySharedConnPool connPool) throws Exception {
-        int timeout = config.getExtInt(ConfigEnum.requestTimeout.getName(), ConfigEnum.requestTimeout.getIntValue());
+    public Object request(Request request, NettyConnPool connPool) throws Exception {
+        MethodPolicy policy = request.getPolicy();
+        int timeout = policy != null ? policy.getRequestTimeout() : config.runtime().getRequestTimeout();
+        long deadline = request.getDeadline();
+        if (deadline > 0) {
+            timeout = (int) Math.min(timeout, deadline - System.currentTimeMillis());
+        }
         final int opaque = request.getOpaque();
-        final NettyResponseFuture responseFuture = new NettyResponseFuture(opaque, timeout, callBack, request);
+        final NettyResponseFuture responseFuture = new NettyResponseFuture(client, opaque, timeout, callBack, request);
         try {
+            if (deadline > 0 && timeout <= 0) {
+                throw new EagleDeadlineException("Request deadline exceeded before send, interface: '%s' method: '%s'", request.getInterfaceName(), request.getMethodName());
+            }
             if (timeout < 0) {
                 throw new EagleFrameException("The request timeout of %s is not allowed to set 0", timeout);
             }
+            //把剩余的超时时间带给服务端，服务端据此丢弃已经过期的请求
+            request.setAttachment(DeadlineContext.DEADLINE_KEY, String.valueOf(timeout));
+            responseFuture.setChannel(channel);
             client.addCallBack(opaque, responseFuture);
+            //放入在途请求表之前调用方已经放弃，不再发送
+            if (request.isCancelled()) {
+                client.removeCallBack(opaque);
+                throw new EagleCancelledException("Request cancelled before send, opaque: [%d]", opaque);
+            }
             final SocketAddress addr = channel.remoteAddress();
             channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
                 @Override
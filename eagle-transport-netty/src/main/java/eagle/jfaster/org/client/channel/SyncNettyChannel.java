@@ -37,17 +37,19 @@ public class SyncNettyChannel extends AbstractNettyChannel {
     protected Object handle(long timeout, NettyResponseFuture responseFuture) throws Exception {
         Object ret = null;
         try {
-            ret = responseFuture.getValue(timeout + 100);
+            ret = responseFuture.getValue(timeout);
+        } catch (InterruptedException e) {
+            //调用线程被中断，保留中断状态
+            Thread.currentThread().interrupt();
+            client.sendCancel(responseFuture);
+            throw new EagleFrameException("Request interrupted, opaque: [%d]", responseFuture.getOpaque());
         } finally {
             client.removeCallBack(responseFuture.getOpaque());
         }
-        if (ret != null) {
+        if (ret != null || responseFuture.isDone()) {
             return ret;
         }
-        if (responseFuture.isSendRequestOK() && !responseFuture.isTimeout()) {
-            return ret;
-        } else {
-            throw new EagleFrameException("Request timeout,timeout: [%d]", timeout);
-        }
+        client.sendCancel(responseFuture);
+        throw new EagleFrameException("Request timeout,timeout: [%d]", timeout);
     }
 }
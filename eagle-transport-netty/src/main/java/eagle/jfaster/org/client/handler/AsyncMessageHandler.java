@@ -35,9 +35,9 @@ public class AsyncMessageHandler extends AbstractMessageChannelHandler {
     @Override
     protected void handle(Response response, NettyResponseFuture future) {
         if (response.getException() != null) {
-            future.setException(response.getException());
+            future.onFail(response.getException());
         } else {
-            future.setValue(response.getValue());
+            future.onSuccess(response.getValue());
         }
         client.executeInvokeCallback(future);
     }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.client.pool;
+
+import eagle.jfaster.org.client.channel.AbstractNettyChannel;
+import io.netty.channel.Channel;
+
+/**
+ * client连接管理
+ *
+ * Created by fangyanpeng on 2018/4/15.
+ */
+public interface NettyConnPool {
+
+    AbstractNettyChannel getConnection();
+
+    void release(AbstractNettyChannel connection);
+
+    void invalidateConnection(AbstractNettyChannel channel);
+
+    void invalidateConnection(Channel channel);
+
+    int getTotalConnections();
+
+    void shutdown() throws InterruptedException;
+}
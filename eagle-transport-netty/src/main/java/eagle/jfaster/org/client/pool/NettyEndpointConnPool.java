@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.client.pool;
+
+import eagle.jfaster.org.client.NettyClient;
+import eagle.jfaster.org.client.NettyEndpoint;
+import eagle.jfaster.org.client.channel.AbstractNettyChannel;
+import eagle.jfaster.org.client.channel.AsyncNettyChannel;
+import eagle.jfaster.org.client.channel.SyncNettyChannel;
+import eagle.jfaster.org.coder.NettyCodec;
+import eagle.jfaster.org.coder.NettyEncoder;
+import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.util.ExceptionUtil;
+import io.netty.channel.Channel;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 单个接口在共享连接上的视图，连接由{@link NettyEndpoint}统一管理，
+ * 这里只为每条共享连接包装出绑定当前client的channel，并在第一次使用时协商服务端能力和该接口的方法id，
+ * 每条连接只协商一次，并发的第一次调用等待同一个协商结果
+ *
+ * Created by fangyanpeng on 2018/4/17.
+ */
+public class NettyEndpointConnPool implements NettyConnPool {
+
+    private final NettyClient client;
+
+    private final NettyEndpoint endpoint;
+
+    private final ConcurrentMap<Channel, FutureTask<AbstractNettyChannel>> views = new ConcurrentHashMap<>();
+
+    public NettyEndpointConnPool(NettyClient client, NettyEndpoint endpoint) {
+        this.client = client;
+        this.endpoint = endpoint;
+        endpoint.ensureConnected();
+    }
+
+    @Override
+    public AbstractNettyChannel getConnection() {
+        final Channel channel = endpoint.getChannel();
+        FutureTask<AbstractNettyChannel> view = views.get(channel);
+        if (view == null) {
+            removeInactive();
+            FutureTask<AbstractNettyChannel> created = new FutureTask<>(new Callable<AbstractNettyChannel>() {
+
+                @Override
+                public AbstractNettyChannel call() throws Exception {
+                    return newView(channel);
+                }
+            });
+            view = views.putIfAbsent(channel, created);
+            if (view == null) {
+                view = created;
+                created.run();
+            }
+        }
+        try {
+            return view.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EagleFrameException("Interrupted while negotiating with %s", client.getConfig().identity());
+        } catch (ExecutionException e) {
+            views.remove(channel, view);
+            throw ExceptionUtil.handleException(e.getCause());
+        }
+    }
+
+    private AbstractNettyChannel newView(Channel channel) {
+        NettyEncoder encoder = channel.pipeline().get(NettyEncoder.class);
+        if (!encoder.hasNegotiatedCapabilities()) {
+            client.negotiateCapabilities(channel);
+        }
+        if (endpoint.getCodec() instanceof NettyCodec && !encoder.hasNegotiated(client.getConfig().getInterfaceName())) {
+            client.negotiateMethodTable(channel);
+        }
+        return client.getCallBack() == null ? new SyncNettyChannel(client, channel) : new AsyncNettyChannel(client, channel);
+    }
+
+    @Override
+    public void release(AbstractNettyChannel connection) {
+        //共享连接不需要归还
+    }
+
+    /**
+     * 单次调用失败不关闭共享连接，连接已经断开时才移除
+     */
+    @Override
+    public void invalidateConnection(AbstractNettyChannel channel) {
+        if (channel.getChannel().isActive()) {
+            return;
+        }
+        views.remove(channel.getChannel());
+        endpoint.invalidate(channel.getChannel());
+    }
+
+    @Override
+    public void invalidateConnection(Channel channel) {
+        views.remove(channel);
+        endpoint.invalidate(channel);
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return endpoint.getActiveConnections();
+    }
+
+    @Override
+    public void shutdown() {
+        views.clear();
+        NettyEndpoint.release(endpoint);
+    }
+
+    private void removeInactive() {
+        Iterator<Channel> it = views.keySet().iterator();
+        while (it.hasNext()) {
+            if (!it.next().isActive()) {
+                it.remove();
+            }
+        }
+    }
+}
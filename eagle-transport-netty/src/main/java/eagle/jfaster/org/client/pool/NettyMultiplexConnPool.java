@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.client.pool;
+
+import eagle.jfaster.org.client.NettyClient;
+import eagle.jfaster.org.client.channel.AbstractNettyChannel;
+import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.logging.InternalLogger;
+import eagle.jfaster.org.logging.InternalLoggerFactory;
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 多路复用连接，固定数量的长连接，请求按opaque区分，所有调用共享连接，
+ * 选择连接时轮询且优先可写的连接，不需要借出和归还。
+ * 连接都由共用的建连线程建立，调用线程不建连，没有可用连接时直接失败
+ *
+ * Created by fangyanpeng on 2018/4/15.
+ */
+public class NettyMultiplexConnPool implements NettyConnPool {
+
+    private final static InternalLogger logger = InternalLoggerFactory.getInstance(NettyMultiplexConnPool.class);
+
+    private static final int CONNECTOR_THREAD = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    // 所有多路复用连接池共用的建连线程，建连超时的节点不会占满其他连接池的建连
+    private static final ThreadPoolExecutor connectExecutor = new ThreadPoolExecutor(CONNECTOR_THREAD, CONNECTOR_THREAD, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DefaultThreadFactory("eagleMultiplexPool connector", true));
+
+    static {
+        connectExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private final MergeConfig config;
+
+    private final NettyClient client;
+
+    private final AtomicReferenceArray<AbstractNettyChannel> channels;
+
+    private final Object[] locks;
+
+    private final AtomicBoolean[] connecting;
+
+    private final AtomicInteger index = new AtomicInteger(0);
+
+    private volatile boolean shutdown = false;
+
+    public NettyMultiplexConnPool(MergeConfig config, NettyClient client, int connectionNum) {
+        this.config = config;
+        this.client = client;
+        this.channels = new AtomicReferenceArray<>(connectionNum);
+        this.locks = new Object[connectionNum];
+        this.connecting = new AtomicBoolean[connectionNum];
+        for (int i = 0; i < connectionNum; i++) {
+            locks[i] = new Object();
+            connecting[i] = new AtomicBoolean(false);
+        }
+        //创建时先建立一条连接，避免刚启动的调用全部失败
+        try {
+            connect(0);
+        } catch (Throwable e) {
+            logger.info(String.format("[%s] multiplex connect failed: %s", config.identity(), e.getMessage()));
+        }
+        for (int i = 0; i < connectionNum; i++) {
+            asyncConnect(i);
+        }
+    }
+
+    @Override
+    public AbstractNettyChannel getConnection() {
+        int size = channels.length();
+        int start = (index.getAndIncrement() & Integer.MAX_VALUE) % size;
+        AbstractNettyChannel candidate = null;
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            AbstractNettyChannel channel = channels.get(slot);
+            if (channel == null || !channel.getChannel().isActive()) {
+                asyncConnect(slot);
+                continue;
+            }
+            if (channel.getChannel().isWritable()) {
+                return channel;
+            }
+            if (candidate == null) {
+                candidate = channel;
+            }
+        }
+        if (candidate != null) {
+            return candidate;
+        }
+        //没有可用的连接，建连线程已经在重连，直接失败，不在调用线程上等待建连
+        throw new EagleFrameException("[%s] no active multiplex connection, reconnecting", config.identity());
+    }
+
+    @Override
+    public void release(AbstractNettyChannel connection) {
+        //多路复用连接不需要归还
+    }
+
+    /**
+     * 单次调用失败(如超时)不关闭共享的连接，连接已经断开时才移除
+     */
+    @Override
+    public void invalidateConnection(AbstractNettyChannel channel) {
+        if (channel.getChannel().isActive()) {
+            return;
+        }
+        removeConnection(channel);
+    }
+
+    @Override
+    public void invalidateConnection(Channel channel) {
+        for (int i = 0; i < channels.length(); i++) {
+            AbstractNettyChannel nettyChannel = channels.get(i);
+            if (nettyChannel != null && channel.equals(nettyChannel.getChannel())) {
+                removeConnection(nettyChannel);
+                return;
+            }
+        }
+    }
+
+    private void removeConnection(AbstractNettyChannel channel) {
+        for (int i = 0; i < channels.length(); i++) {
+            if (channels.get(i) == channel && channels.compareAndSet(i, channel, null)) {
+                channel.close();
+                asyncConnect(i);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int getTotalConnections() {
+        int total = 0;
+        for (int i = 0; i < channels.length(); i++) {
+            AbstractNettyChannel channel = channels.get(i);
+            if (channel != null && channel.getChannel().isActive()) {
+                ++total;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        shutdown = true;
+        for (int i = 0; i < channels.length(); i++) {
+            AbstractNettyChannel channel = channels.getAndSet(i, null);
+            if (channel != null) {
+                channel.close();
+            }
+        }
+        logger.info(String.format("[%s] multiplex connections closed", config.identity()));
+    }
+
+    private void asyncConnect(final int slot) {
+        if (shutdown || !connecting[slot].compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            connectExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        connect(slot);
+                    } catch (Throwable e) {
+                        logger.info(String.format("[%s] multiplex connect failed: %s", config.identity(), e.getMessage()));
+                    } finally {
+                        connecting[slot].set(false);
+                    }
+                }
+            });
+        } catch (Throwable e) {
+            connecting[slot].set(false);
+        }
+    }
+
+    private AbstractNettyChannel connect(int slot) {
+        synchronized (locks[slot]) {
+            AbstractNettyChannel channel = channels.get(slot);
+            if (channel != null && channel.getChannel().isActive()) {
+                return channel;
+            }
+            if (shutdown) {
+                throw new EagleFrameException("[%s] multiplex pool has shutdown", config.identity());
+            }
+            if (channel != null) {
+                channels.compareAndSet(slot, channel, null);
+                channel.close();
+            }
+            try {
+                AbstractNettyChannel newChannel = client.newChannel();
+                channels.set(slot, newChannel);
+                return newChannel;
+            } catch (InterruptedException e) {
+                throw new EagleFrameException("[%s] Interrupted during multiplex connect", config.identity());
+            } catch (Throwable e) {
+                throw new EagleFrameException("[%s] multiplex connect failed: %s", config.identity(), e.getMessage());
+            }
+        }
+    }
+}
@@ -19,7 +19,6 @@ package eagle.jfaster.org.client.pool;
 
 import eagle.jfaster.org.client.channel.AbstractNettyChannel;
 import eagle.jfaster.org.client.NettyClient;
-import eagle.jfaster.org.config.ConfigEnum;
 import eagle.jfaster.org.config.common.MergeConfig;
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.logging.InternalLogger;
@@ -50,7 +49,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
  *
  * Created by fangyanpeng1 on 2017/8/2.
  */
-public class NettySharedConnPool implements IBagStateListener {
+public class NettySharedConnPool implements IBagStateListener, NettyConnPool {
 
     private final static InternalLogger logger = InternalLoggerFactory.getInstance(NettySharedConnPool.class);
 
@@ -97,7 +96,7 @@ public class NettySharedConnPool implements IBagStateListener {
         totalConnections = new AtomicInteger(0);
         connectionBag = new ConcurrentBag<>(this);
         ThreadFactory threadFactory = new DefaultThreadFactory(poolName + " housekeeper", true);
-        int maxClientConnection = config.getExtInt(ConfigEnum.maxClientConnection.getName(), ConfigEnum.maxClientConnection.getIntValue());
+        int maxClientConnection = config.runtime().getMaxClientConnection();
         this.addConnectionExecutor = createThreadPoolExecutor(maxClientConnection, poolName + " connection adder", threadFactory, new ThreadPoolExecutor.DiscardPolicy());
         this.closeConnectionExecutor = createThreadPoolExecutor(maxClientConnection, poolName + " connection closer", threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
         this.houseKeepingExecutorService = new ScheduledThreadPoolExecutor(1, threadFactory, new ThreadPoolExecutor.DiscardPolicy());
@@ -108,7 +107,7 @@ public class NettySharedConnPool implements IBagStateListener {
     }
 
     public final AbstractNettyChannel getConnection() {
-        long connectionTimeout = config.getExtLong(ConfigEnum.connectTimeout.getName(), ConfigEnum.connectTimeout.getLongValue());
+        long connectionTimeout = config.runtime().getConnectTimeout();
         final long startTime = clockSource.currentTime();
 
         try {
@@ -140,8 +139,8 @@ public class NettySharedConnPool implements IBagStateListener {
     }
 
     private void fillPool() {
-        int maxClientConnection = config.getExtInt(ConfigEnum.maxClientConnection.getName(), ConfigEnum.maxClientConnection.getIntValue());
-        int minClientConnection = config.getExtInt(ConfigEnum.minClientConnection.getName(), ConfigEnum.minClientConnection.getIntValue());
+        int maxClientConnection = config.runtime().getMaxClientConnection();
+        int minClientConnection = config.runtime().getMinClientConnection();
         final int connectionsToAdd = Math.min(maxClientConnection - totalConnections.get(), minClientConnection - getIdleConnections())
                 - addConnectionExecutor.getQueue().size();
         for (int i = 0; i < connectionsToAdd; i++) {
@@ -203,7 +202,7 @@ public class NettySharedConnPool implements IBagStateListener {
     private NettyPoolEntry createPoolEntry() {
         try {
             final NettyPoolEntry poolEntry = newPoolEntry();
-            final long maxLifetime = config.getExtLong(ConfigEnum.maxLifetime.getName(), ConfigEnum.maxLifetime.getLongValue());
+            final long maxLifetime = config.runtime().getMaxLifetime();
             if (maxLifetime > 0) {
                 final long variance = maxLifetime > 10_000 ? ThreadLocalRandom.current().nextLong(maxLifetime / 40) : 0;
                 final long lifetime = maxLifetime - variance;
@@ -308,7 +307,7 @@ public class NettySharedConnPool implements IBagStateListener {
         @Override
         public void run() {
             try {
-                long idleTimeout = config.getExtLong(ConfigEnum.idleTime.getName(), ConfigEnum.idleTime.getLongValue());
+                long idleTimeout = config.runtime().getIdleTime();
                 final long now = clockSource.currentTime();
                 if (clockSource.plusMillis(now, 128) < clockSource.plusMillis(previous, HOUSEKEEPING_PERIOD_MS)) {
                     logger.warn("{} - Retrograde clock change detected (housekeeper delta={}), soft-evicting connections from pool.",
@@ -323,7 +322,7 @@ public class NettySharedConnPool implements IBagStateListener {
                 previous = now;
                 if (idleTimeout > 0L) {
                     final List<NettyPoolEntry> idleList = connectionBag.values(STATE_NOT_IN_USE);
-                    int minClientConnection = config.getExtInt(ConfigEnum.minClientConnection.getName(), ConfigEnum.minClientConnection.getIntValue());
+                    int minClientConnection = config.runtime().getMinClientConnection();
                     int removable = idleList.size() - minClientConnection;
                     if (removable > 0) {
                         Collections.sort(idleList, LASTACCESS_COMPARABLE);
@@ -349,8 +348,8 @@ public class NettySharedConnPool implements IBagStateListener {
         @Override
         public Boolean call() throws Exception {
             long sleepBackoff = 250L;
-            int maxClientConnection = config.getExtInt(ConfigEnum.maxClientConnection.getName(), ConfigEnum.maxClientConnection.getIntValue());
-            long connectionTimeout = config.getExtLong(ConfigEnum.connectTimeout.getName(), ConfigEnum.connectTimeout.getLongValue());
+            int maxClientConnection = config.runtime().getMaxClientConnection();
+            long connectionTimeout = config.runtime().getConnectTimeout();
             while (poolState == POOL_NORMAL && totalConnections.get() < maxClientConnection) {
                 final NettyPoolEntry poolEntry = createPoolEntry();
                 if (poolEntry != null) {
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.coder;
+
+import eagle.jfaster.org.codec.Codec;
+import eagle.jfaster.org.codec.Serialization;
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 直接基于ByteBuf编解码，省去ByteBuffer中转的拷贝
+ *
+ * Created by fangyanpeng on 2018/4/12.
+ */
+public interface NettyCodec extends Codec {
+
+    void encode(Object message, Serialization serialization, ByteBuf out) throws IOException;
+
+    /**
+     * methodIds为连接上协商得到的方法id表(methodDesc->id)，命中时请求只携带方法id
+     */
+    void encode(Object message, Serialization serialization, ByteBuf out, Map<String, Integer> methodIds) throws IOException;
+
+    Object decode(ByteBuf in, Serialization serialization, int opaque, short magicCode) throws IOException;
+}
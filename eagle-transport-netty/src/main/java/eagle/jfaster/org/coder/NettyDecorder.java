@@ -33,8 +33,6 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 
-import java.nio.ByteBuffer;
-
 /**
  * netty解码器
  *
@@ -63,14 +61,16 @@ public class NettyDecorder extends LengthFieldBasedFrameDecoder {
             if (null == frame) {
                 return null;
             }
-            ByteBuffer byteBuffer = frame.nioBuffer();
-            short magicCode = byteBuffer.getShort();
+            short magicCode = frame.readShort();
             if (isNotIllegal(magicCode)) {
                 throw new EagleFrameException("Error the type: '%d' is not supported", magicCode);
             }
-            int opaque = byteBuffer.getInt();
+            int opaque = frame.readInt();
             try {
-                return codec.decode(byteBuffer, serialization, opaque, magicCode);
+                if (codec instanceof NettyCodec) {
+                    return ((NettyCodec) codec).decode(frame, serialization, opaque, magicCode);
+                }
+                return codec.decode(frame.nioBuffer(), serialization, opaque, magicCode);
             } catch (Throwable e) {
                 logger.error("Error codec decode ", e);
                 EagleResponse response;
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.coder;
+
+import com.google.common.base.Strings;
+
+import eagle.jfaster.org.codec.Serialization;
+import eagle.jfaster.org.codec.StreamSerialization;
+import eagle.jfaster.org.codec.support.EagleCodec;
+import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.rpc.Response;
+import eagle.jfaster.org.rpc.support.CancelRequest;
+import eagle.jfaster.org.rpc.support.EagleRequest;
+import eagle.jfaster.org.rpc.support.EagleResponse;
+import eagle.jfaster.org.spi.SpiInfo;
+import eagle.jfaster.org.util.ReflectUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static eagle.jfaster.org.constant.EagleConstants.*;
+import static eagle.jfaster.org.util.RequestUtil.*;
+
+/**
+ * 与EagleCodec协议完全兼容的编解码器，编码时直接写入netty分配的ByteBuf，
+ * 解码时直接从帧中读取，不再经过ByteBuffer和中间数组。
+ * 序列化方式支持流式读写时，参数和返回值直接序列化到ByteBuf中
+ *
+ * Created by fangyanpeng on 2018/4/12.
+ */
+@SpiInfo(name = "eagleBuf")
+public class NettyEagleCodec extends EagleCodec implements NettyCodec {
+
+    @Override
+    public void encode(Object message, Serialization serialization, ByteBuf out) throws IOException {
+        encode(message, serialization, out, null);
+    }
+
+    @Override
+    public void encode(Object message, Serialization serialization, ByteBuf out, Map<String, Integer> methodIds) throws IOException {
+        int start = out.writerIndex();
+        if (Response.class.isInstance(message)) { //编码response
+            Response response = (Response) message;
+            try {
+                encodeResponse(response, serialization, out);
+            } catch (Throwable e) {
+                out.writerIndex(start);
+                EagleResponse exResponse = new EagleResponse();
+                exResponse.setOpaque(response.getOpaque());
+                exResponse.setNeedCompress(false);
+                exResponse.setException(new EagleFrameException(e.getMessage()));
+                encodeResponse(exResponse, serialization, out);
+            }
+        } else if (message instanceof CancelRequest) {
+            writeHeader(out, (short) (EAGLE_MAGIC_CODE | EAGLE_TYPE_REQ | EAGLE_REQ_CANCEL), ((CancelRequest) message).getOpaque());
+        } else {
+            encodeRequest((Request) message, serialization, out, methodIds);
+        }
+        //回填总长度
+        out.setInt(start, out.writerIndex() - start);
+    }
+
+    private void encodeResponse(Response response, Serialization serialization, ByteBuf out) throws IOException {
+        short magicCode = EAGLE_MAGIC_CODE;
+        if (response.isNeedCompress()) {
+            magicCode |= EAGLE_COMPRESS_TYPE;
+        }
+        Object res;
+        if (response.getException() != null) {
+            magicCode |= EAGLE_RESPONSE_EXCEPTION;
+            res = response.getException();
+        } else if (response.getValue() != null) {
+            magicCode |= EAGLE_RESPONSE_NORMAL;
+            res = response.getValue();
+        } else {
+            writeHeader(out, magicCode, response.getOpaque());
+            return;
+        }
+        writeHeader(out, magicCode, response.getOpaque());
+        writeShortBytes(out, res.getClass().getName().getBytes(CHARSET_UTF8));
+        if (response.isNeedCompress()) {
+            byte[] valData = serialization.serialize(res);
+            int originLen = valData.length;
+            valData = compress(valData);
+            out.writeInt(valData.length);
+            out.writeBytes(valData);
+            out.writeInt(originLen);
+        } else {
+            writeValue(out, res, serialization);
+        }
+    }
+
+    private void encodeRequest(Request request, Serialization serialization, ByteBuf out, Map<String, Integer> methodIds) throws IOException {
+        short magicCode = EAGLE_MAGIC_CODE;
+        magicCode |= EAGLE_TYPE_REQ;
+        if (request.isNeedCompress()) {
+            magicCode |= EAGLE_COMPRESS_TYPE;
+        }
+        String paramDesc = request.getParameterDesc();
+        boolean hasParameter = !Strings.isNullOrEmpty(paramDesc);
+        if (hasParameter) {
+            magicCode |= EAGLE_REQ_PARAMETER;
+        }
+        Integer methodId = methodIds == null ? null : methodIds.get(ReflectUtil.getMethodDesc(request.getMethodName(), paramDesc));
+        if (methodId != null) {
+            magicCode |= EAGLE_REQ_METHOD_ID;
+            writeHeader(out, magicCode, request.getOpaque());
+            out.writeInt(methodId);
+        } else {
+            writeHeader(out, magicCode, request.getOpaque());
+            writeShortBytes(out, request.getInterfaceName().getBytes(CHARSET_UTF8));
+            writeShortBytes(out, request.getMethodName().getBytes(CHARSET_UTF8));
+            if (hasParameter) {
+                byte[] paramDescData = paramDesc.getBytes(CHARSET_UTF8);
+                out.writeInt(paramDescData.length);
+                out.writeBytes(paramDescData);
+            }
+        }
+        if (hasParameter) {
+            for (Object param : request.getParameters()) {
+                if (param == null) {
+                    out.writeInt(0);
+                } else {
+                    writeValue(out, param, serialization);
+                }
+            }
+        }
+        writeAttachments(out, request.getAttachments());
+    }
+
+    private void writeValue(ByteBuf out, Object val, Serialization serialization) throws IOException {
+        if (serialization instanceof StreamSerialization) {
+            //长度先占位，序列化直接写入buffer后回填
+            int lenIndex = out.writerIndex();
+            out.writeInt(0);
+            ((StreamSerialization) serialization).serialize(val, new ByteBufOutputStream(out));
+            out.setInt(lenIndex, out.writerIndex() - lenIndex - 4);
+        } else {
+            byte[] data = serialization.serialize(val);
+            out.writeInt(data.length);
+            out.writeBytes(data);
+        }
+    }
+
+    private void writeHeader(ByteBuf out, short magicCode, int opaque) {
+        //totalLen先占位，编码完成后回填
+        out.writeInt(0);
+        out.writeShort(magicCode);
+        out.writeInt(opaque);
+    }
+
+    private void writeShortBytes(ByteBuf out, byte[] data) {
+        out.writeShort(data.length);
+        out.writeBytes(data);
+    }
+
+    private void writeAttachments(ByteBuf out, Map<String, String> attachments) {
+        int lenIndex = out.writerIndex();
+        out.writeInt(0);
+        if (attachments == null || attachments.isEmpty()) {
+            return;
+        }
+        byte[] val;
+        for (Map.Entry<String, String> entry : attachments.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                writeShortBytes(out, entry.getKey().getBytes(CHARSET_UTF8));
+                val = entry.getValue().getBytes(CHARSET_UTF8);
+                out.writeInt(val.length);
+                out.writeBytes(val);
+            }
+        }
+        out.setInt(lenIndex, out.writerIndex() - lenIndex - 4);
+    }
+
+    @Override
+    public Object decode(ByteBuf in, Serialization serialization, int opaque, short magicCode) throws IOException {
+        try {
+            if (isRequest(magicCode)) {
+                return decodeRequest(in, serialization, opaque, magicCode);
+            } else {
+                return decodeResponse(in, serialization, opaque, magicCode);
+            }
+        } catch (Exception e) {
+            throw new EagleFrameException(e.getMessage());
+        }
+    }
+
+    private Object decodeRequest(ByteBuf in, Serialization serialization, int opaque, short magicCode) throws IOException, ClassNotFoundException {
+        if (isCancel(magicCode)) {
+            return new CancelRequest(opaque);
+        }
+        EagleRequest request = new EagleRequest();
+        request.setOpaque(opaque);
+        request.setNeedCompress(isCompress(magicCode));
+        Class<?>[] classTypes = null;
+        if (isRequestWithMethodId(magicCode)) {
+            classTypes = decodeMethodEntry(in.readInt(), request).getParameterTypes();
+        } else {
+            request.setInterfaceName(readString(in, in.readShort()));
+            request.setMethodName(readString(in, in.readShort()));
+            if (isRequestWithParameter(magicCode)) {
+                String paramDesc = readString(in, in.readInt());
+                request.setParameterDesc(paramDesc);
+                classTypes = ReflectUtil.forNames(paramDesc);
+            }
+        }
+        if (isRequestWithParameter(magicCode)) {
+            Object[] paramObjs = new Object[classTypes.length];
+            int dataLen;
+            for (int i = 0; i < classTypes.length; i++) {
+                dataLen = in.readInt();
+                if (dataLen != 0) {
+                    paramObjs[i] = readValue(in, dataLen, classTypes[i], serialization);
+                }
+            }
+            request.setParameters(paramObjs);
+        }
+        request.setAttachments(decodeAttachments(in));
+        return request;
+    }
+
+    private Map<String, String> decodeAttachments(ByteBuf in) {
+        int size = in.readInt();
+        if (size <= 0) {
+            return null;
+        }
+        Map<String, String> attachments = new HashMap<>();
+        String key;
+        while (in.isReadable()) {
+            key = readString(in, in.readShort());
+            attachments.put(key, readString(in, in.readInt()));
+        }
+        return attachments;
+    }
+
+    private Object decodeResponse(ByteBuf in, Serialization serialization, int opaque, short magicCode) throws IOException, ClassNotFoundException {
+        EagleResponse response = new EagleResponse();
+        response.setOpaque(opaque);
+        if (isVoidValue(magicCode)) {
+            return response;
+        }
+        Class<?> clz = ReflectUtil.forName(readString(in, in.readShort()));
+        int valLen = in.readInt();
+        Object val;
+        if (isCompress(magicCode)) {//需要对内容进行解压
+            byte[] data = readBytes(in, valLen);
+            val = serialization.deserialize(unCompress(data, in.readInt()), clz);
+        } else {
+            val = readValue(in, valLen, clz, serialization);
+        }
+        if (isNormalValue(magicCode)) {
+            response.setValue(val);
+        } else {
+            response.setException((Exception) val);
+        }
+        return response;
+    }
+
+    private <T> T readValue(ByteBuf in, int len, Class<T> clz, Serialization serialization) throws IOException {
+        if (serialization instanceof StreamSerialization) {
+            T val = ((StreamSerialization) serialization).deserialize(new ByteBufInputStream(in.slice(in.readerIndex(), len)), clz);
+            in.skipBytes(len);
+            return val;
+        }
+        return serialization.deserialize(readBytes(in, len), clz);
+    }
+
+    private String readString(ByteBuf in, int len) {
+        String val = in.toString(in.readerIndex(), len, CHARSET_UTF8);
+        in.skipBytes(len);
+        return val;
+    }
+
+    private byte[] readBytes(ByteBuf in, int len) {
+        byte[] data = ByteBufUtil.getBytes(in, in.readerIndex(), len, false);
+        in.skipBytes(len);
+        return data;
+    }
+}
@@ -17,18 +17,25 @@
 
 package eagle.jfaster.org.coder;
 
+import static eagle.jfaster.org.constant.EagleConstants.CAPABILITY_CANCEL;
+
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
 import eagle.jfaster.org.util.ExceptionUtil;
 import eagle.jfaster.org.util.RemotingUtil;
 import eagle.jfaster.org.codec.Codec;
 import eagle.jfaster.org.codec.Serialization;
+import eagle.jfaster.org.rpc.Request;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 import lombok.RequiredArgsConstructor;
 
 import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * netty编码器
@@ -45,11 +52,46 @@ public class NettyEncoder extends MessageToByteEncoder {
 
     private final Serialization serialization;
 
+    //连接上按接口协商得到的方法id表，共享连接时一条连接上有多个接口
+    private final ConcurrentMap<String, Map<String, Integer>> methodIds = new ConcurrentHashMap<>();
+
+    public void putMethodIds(String interfaceName, Map<String, Integer> ids) {
+        methodIds.put(interfaceName, ids);
+    }
+
+    public boolean hasNegotiated(String interfaceName) {
+        return methodIds.containsKey(interfaceName);
+    }
+
+    //连接上协商得到的服务端能力，null表示还没有协商
+    private volatile Set<String> capabilities;
+
+    public void setCapabilities(Set<String> capabilities) {
+        this.capabilities = capabilities;
+    }
+
+    public boolean hasNegotiatedCapabilities() {
+        return capabilities != null;
+    }
+
+    /**
+     * 服务端声明了取消能力才发送取消请求，老版本服务端不发送，和编码方式无关
+     */
+    public boolean supportCancel() {
+        Set<String> capabilities = this.capabilities;
+        return capabilities != null && capabilities.contains(CAPABILITY_CANCEL);
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, Object message, ByteBuf byteBuf) throws Exception {
         try {
-            ByteBuffer data = codec.encode(message, serialization);
-            byteBuf.writeBytes(data);
+            if (codec instanceof NettyCodec) {
+                Map<String, Integer> ids = message instanceof Request ? methodIds.get(((Request) message).getInterfaceName()) : null;
+                ((NettyCodec) codec).encode(message, serialization, byteBuf, ids);
+            } else {
+                ByteBuffer data = codec.encode(message, serialization);
+                byteBuf.writeBytes(data);
+            }
         } catch (Throwable e) {
             logger.error("Error encode message " + RemotingUtil.parseChannelRemoteAddr(ctx.channel()), e);
             RemotingUtil.closeChannel(ctx.channel(), "NettyEncoder encode");
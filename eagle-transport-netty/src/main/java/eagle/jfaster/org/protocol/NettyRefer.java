@@ -17,19 +17,33 @@
 
 package eagle.jfaster.org.protocol;
 
+import eagle.jfaster.org.config.ConfigEnum;
 import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.config.common.MethodPolicy;
+import eagle.jfaster.org.exception.EagleCancelledException;
+import eagle.jfaster.org.exception.EagleDeadlineException;
 import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.exception.EagleRemoteException;
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
-import eagle.jfaster.org.pool.SuspendResumeLock;
 import eagle.jfaster.org.rpc.Refer;
+import eagle.jfaster.org.rpc.ReferStateListener;
 import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.rpc.support.AdaptiveLimiter;
+import eagle.jfaster.org.rpc.support.CircuitBreaker;
+import eagle.jfaster.org.statistic.LatencyEwma;
 import eagle.jfaster.org.transport.Client;
 import eagle.jfaster.org.util.ExceptionUtil;
 import lombok.RequiredArgsConstructor;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static eagle.jfaster.org.constant.EagleConstants.LATENCY_EWMA_DECAY;
+
 /**
  * Created by fangyanpeng1 on 2017/8/4.
  */
@@ -44,10 +58,35 @@ public class NettyRefer<T> implements Refer<T> {
 
     private final Class<T> type;
 
-    protected final SuspendResumeLock lock;
+    //refer级别的自适应并发限制，actives作为并发上限的最大值，没有配置actives时为null，actives变化时重建
+    private volatile AdaptiveLimiter limiter;
 
     protected AtomicInteger activeCnt = new AtomicInteger(0);
 
+    private volatile AdaptiveLimiter[] methodLimiters = new AdaptiveLimiter[0];
+
+    //异步调用在这里只能拿到发送耗时，只统计同步调用
+    private final LatencyEwma latency = new LatencyEwma(LATENCY_EWMA_DECAY, TimeUnit.MILLISECONDS);
+
+    private final List<ReferStateListener> stateListeners = new CopyOnWriteArrayList<>();
+
+    //client和熔断器的状态变化都通知给负载均衡
+    private final Runnable stateNotifier = new Runnable() {
+
+        @Override
+        public void run() {
+            for (ReferStateListener listener : stateListeners) {
+                try {
+                    listener.onStateChange();
+                } catch (Throwable e) {
+                    logger.error("Notify state change error: " + config.identity(), e);
+                }
+            }
+        }
+    };
+
+    private volatile CircuitBreaker breaker;
+
     @Override
     public MergeConfig getConfig() {
         return config;
@@ -58,6 +97,17 @@ public class NettyRefer<T> implements Refer<T> {
         return activeCnt.get();
     }
 
+    @Override
+    public long getLatency() {
+        return latency.get();
+    }
+
+    @Override
+    public int getConcurrentLimit() {
+        AdaptiveLimiter limiter = getLimiter();
+        return limiter == null ? Integer.MAX_VALUE : limiter.getLimit();
+    }
+
     @Override
     public Class<T> getType() {
         return type;
@@ -77,23 +127,63 @@ public class NettyRefer<T> implements Refer<T> {
 
     @Override
     public void init() {
+        if (config.getExtBoolean(ConfigEnum.circuitBreaker.getName(), ConfigEnum.circuitBreaker.isBooleanValue())) {
+            breaker = new CircuitBreaker(config, stateNotifier);
+        }
+        client.addStateListener(new ReferStateListener() {
+
+            @Override
+            public void onStateChange() {
+                stateNotifier.run();
+            }
+        });
         client.start();
     }
 
     @Override
     public Object request(Request request) {
+        //获取和释放用同一个限制器，配置变化后进行中的调用仍然释放到旧的限制器
+        AdaptiveLimiter limiter = getLimiter();
+        AdaptiveLimiter methodLimiter = getMethodLimiter(request.getPolicy());
+        activeCnt.incrementAndGet();
         try {
-            if (lock.tryAcquire()) {
-                try {
-                    activeCnt.incrementAndGet();
-                    return client.request(request);
-                } finally {
-                    lock.release();
+            acquire(request, limiter, methodLimiter);
+            CircuitBreaker breaker = this.breaker;
+            if (breaker != null && !breaker.allowRequest()) {
+                release(limiter, methodLimiter, -1);
+                throw new EagleFrameException("'%s' circuit breaker is open", config.identity());
+            }
+            boolean sync = config.getInvokeCallBack() == null;
+            //只有超时、发送失败和框架错误算节点故障，服务实现抛出的业务异常不算
+            boolean fault = true;
+            boolean cancelled = false;
+            long start = System.nanoTime();
+            try {
+                Object result = doRequest(request);
+                fault = false;
+                return result;
+            } catch (EagleCancelledException | EagleDeadlineException e) {
+                cancelled = true;
+                throw e;
+            } catch (EagleRemoteException e) {
+                fault = false;
+                throw e;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                //调用方放弃等待（比如对冲请求输掉）或者发送前deadline已经用完，没有结果，不采样也不计入熔断
+                //异步调用在这里只能拿到发送耗时，不参与并发上限和响应时间的计算，熔断只统计失败
+                release(limiter, methodLimiter, sync && !cancelled ? elapsed : -1);
+                if (sync && !cancelled) {
+                    //超时和传输失败至少按超时时间计入，避免快速失败的节点看起来响应最快，业务异常按实际耗时
+                    latency.update(fault ? Math.max(elapsed, timeoutNanos(request)) : elapsed);
+                }
+                if (breaker != null) {
+                    if (cancelled) {
+                        breaker.abandon();
+                    } else {
+                        breaker.record(fault, sync ? elapsed : 0, timeoutNanos(request));
+                    }
                 }
-            } else {
-                String warn = String.format("'%s' too much request, more than actives: [%d]", config.identity(), lock.getMaxPermits());
-                logger.warn(warn);
-                throw new EagleFrameException(warn);
             }
         } catch (Throwable e) {
             throw ExceptionUtil.handleException(e);
@@ -102,8 +192,126 @@ public class NettyRefer<T> implements Refer<T> {
         }
     }
 
+    private long timeoutNanos(Request request) {
+        MethodPolicy policy = request.getPolicy();
+        int timeout = policy != null ? policy.getRequestTimeout() : config.runtime().getRequestTimeout();
+        return TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+    @Override
+    public void cancel(Request request) {
+        client.cancel(request);
+    }
+
+    protected Object doRequest(Request request) {
+        return client.request(request);
+    }
+
+    /**
+     * 超过并发上限直接拒绝，不等待，由负载均衡把流量分到其他refer
+     */
+    private void acquire(Request request, AdaptiveLimiter limiter, AdaptiveLimiter methodLimiter) {
+        if (limiter != null && !limiter.tryAcquire()) {
+            String warn = String.format("'%s' too much request, more than limit: [%d]", config.identity(), limiter.getLimit());
+            logger.warn(warn);
+            throw new EagleFrameException(warn);
+        }
+        if (methodLimiter != null && !methodLimiter.tryAcquire()) {
+            if (limiter != null) {
+                limiter.release();
+            }
+            String warn = String.format("'%s' too much request for method '%s', more than limit: [%d]", config.identity(), request.getPolicy().getMethodDesc(), methodLimiter.getLimit());
+            logger.warn(warn);
+            throw new EagleFrameException(warn);
+        }
+    }
+
+    /**
+     * elapsed小于0时只释放不采样
+     */
+    private void release(AdaptiveLimiter limiter, AdaptiveLimiter methodLimiter, long elapsed) {
+        if (methodLimiter != null) {
+            if (elapsed < 0) {
+                methodLimiter.release();
+            } else {
+                methodLimiter.release(elapsed);
+            }
+        }
+        if (limiter != null) {
+            if (elapsed < 0) {
+                limiter.release();
+            } else {
+                limiter.release(elapsed);
+            }
+        }
+    }
+
+    /**
+     * refer级的并发控制，和方法级一样按合并后的actives判断是否需要重建
+     */
+    private AdaptiveLimiter getLimiter() {
+        int actives = config.runtime().getActives();
+        if (actives <= 0) {
+            return null;
+        }
+        AdaptiveLimiter limiter = this.limiter;
+        if (limiter != null && limiter.getMaxLimit() == actives) {
+            return limiter;
+        }
+        return newLimiter(actives);
+    }
+
+    private synchronized AdaptiveLimiter newLimiter(int actives) {
+        AdaptiveLimiter limiter = this.limiter;
+        if (limiter == null || limiter.getMaxLimit() != actives) {
+            limiter = new AdaptiveLimiter(actives, 1, actives);
+            this.limiter = limiter;
+        }
+        return limiter;
+    }
+
+    /**
+     * 方法级的并发控制，按方法策略的下标缓存，策略重新编译后并发数变化时重建
+     */
+    private AdaptiveLimiter getMethodLimiter(MethodPolicy policy) {
+        if (policy == null || policy.getActives() <= 0) {
+            return null;
+        }
+        AdaptiveLimiter[] limiters = methodLimiters;
+        int index = policy.getIndex();
+        if (index < limiters.length && limiters[index] != null && limiters[index].getMaxLimit() == policy.getActives()) {
+            return limiters[index];
+        }
+        return newMethodLimiter(policy);
+    }
+
+    private synchronized AdaptiveLimiter newMethodLimiter(MethodPolicy policy) {
+        AdaptiveLimiter[] limiters = methodLimiters;
+        int index = policy.getIndex();
+        if (index < limiters.length && limiters[index] != null && limiters[index].getMaxLimit() == policy.getActives()) {
+            return limiters[index];
+        }
+        limiters = Arrays.copyOf(limiters, Math.max(limiters.length, index + 1));
+        limiters[index] = new AdaptiveLimiter(policy.getActives(), 1, policy.getActives());
+        methodLimiters = limiters;
+        return limiters[index];
+    }
+
     @Override
     public boolean isAlive() {
-        return client.isAlive();
+        CircuitBreaker breaker = this.breaker;
+        return client.isAlive() && (breaker == null || breaker.isAvailable());
+    }
+
+    @Override
+    public void addStateListener(ReferStateListener listener) {
+        if (!stateListeners.contains(listener)) {
+            stateListeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeStateListener(ReferStateListener listener) {
+        stateListeners.remove(listener);
     }
 }
@@ -25,7 +25,6 @@ import eagle.jfaster.org.config.ConfigEnum;
 import eagle.jfaster.org.config.common.MergeConfig;
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
-import eagle.jfaster.org.pool.SuspendResumeLock;
 import eagle.jfaster.org.rpc.*;
 import eagle.jfaster.org.rpc.support.EagleRpcJdkRemoteInvoke;
 import eagle.jfaster.org.server.NettyServer;
@@ -48,7 +47,7 @@ public class NettyRpcProtocol<T> implements Protocol<T> {
 
     private Map<String, InvokeRouter<Request, Response>> host2Router = Maps.newHashMap();
 
-    private Map<String, Server> host2Server = Maps.newHashMap();
+    private Map<String, NettyServer> host2Server = Maps.newHashMap();
 
     private AtomicBoolean alive = new AtomicBoolean(true);
 
@@ -56,7 +55,7 @@ public class NettyRpcProtocol<T> implements Protocol<T> {
     public Exporter createServer(RemoteInvoke invoker) {
         MergeConfig config = invoker.getConfig();
         InvokeRouter<Request, Response> router = getInvokeRouter(invoker);
-        Server nettyServer;
+        NettyServer nettyServer;
         if (router.needExport()) {
             //添加心跳响应
             HeartBeatFactory heartBeatFactory = SpiClassLoader.getClassLoader(HeartBeatFactory.class).getExtension(config.getExt(ConfigEnum.heartbeatFactory.getName(), ConfigEnum.heartbeatFactory.getValue()));
@@ -67,10 +66,12 @@ public class NettyRpcProtocol<T> implements Protocol<T> {
             router.addRemoteInvoke(new EagleRpcJdkRemoteInvoke(HeartBeat.class, heartBeat, heartBeat.getConfig()));
             //
             nettyServer = new NettyServer(config, router);
+            nettyServer.addBulkhead(invoker);
             nettyServer.start();
             host2Server.put(config.hostPort(), nettyServer);
         } else {
             nettyServer = host2Server.get(config.hostPort());
+            nettyServer.addBulkhead(invoker);
         }
         Exporter exporter = new NettyRpcExporter(invoker, nettyServer);
         exporter.init();
@@ -80,16 +81,9 @@ public class NettyRpcProtocol<T> implements Protocol<T> {
     @Override
     public Refer createRefer(MergeConfig config, Class<T> type) {
         Client client = new NettyClient(config, config.getInvokeCallBack(), config.getInterceptors());
-        SuspendResumeLock lock = SuspendResumeLock.FAUX_LOCK;
-        //并发控制
-        int actives = config.getExtInt(ConfigEnum.actives.getName(), ConfigEnum.actives.getIntValue());
-        if (actives != 0) {
-            long activesWait = config.getExtLong(ConfigEnum.activesWait.getName(), ConfigEnum.activesWait.getLongValue());
-            lock = new SuspendResumeLock(actives, activesWait);
-        }
         //是否统计调用信息，如果配置了统计日志则统计各个方法的调用信息
         String logName = config.getExt(ConfigEnum.statsLog.getName(), ConfigEnum.statsLog.getValue());
-        Refer<T> refer = Strings.isNullOrEmpty(logName) ? new NettyRefer<>(client, config, type, lock) : new StatsNettyRefer<>(client, config, type, lock, InternalLoggerFactory.getInstance(logName));
+        Refer<T> refer = Strings.isNullOrEmpty(logName) ? new NettyRefer<>(client, config, type) : new StatsNettyRefer<>(client, config, type, InternalLoggerFactory.getInstance(logName));
         refer.init();
         return refer;
     }
@@ -97,7 +91,7 @@ public class NettyRpcProtocol<T> implements Protocol<T> {
     @Override
     public void close() {
         if (alive.compareAndSet(true, false)) {
-            for (Map.Entry<String, Server> entry : host2Server.entrySet()) {
+            for (Map.Entry<String, NettyServer> entry : host2Server.entrySet()) {
                 entry.getValue().shutdown();
             }
             host2Server.clear();
@@ -18,14 +18,12 @@
 package eagle.jfaster.org.protocol;
 
 import eagle.jfaster.org.config.common.MergeConfig;
-import eagle.jfaster.org.exception.EagleFrameException;
+import eagle.jfaster.org.config.common.MethodPolicy;
 import eagle.jfaster.org.logging.InternalLogger;
-import eagle.jfaster.org.pool.SuspendResumeLock;
 import eagle.jfaster.org.rpc.Request;
 import eagle.jfaster.org.statistic.EagleStatsManager;
 import eagle.jfaster.org.transport.Client;
 import eagle.jfaster.org.util.ClockSource;
-import eagle.jfaster.org.util.ExceptionUtil;
 import eagle.jfaster.org.util.ReflectUtil;
 
 /**
@@ -38,33 +36,21 @@ public class StatsNettyRefer<T> extends NettyRefer<T> {
 
     private final String statsKey;
 
-    public StatsNettyRefer(Client client, MergeConfig config, Class<T> type, SuspendResumeLock lock, InternalLogger log) {
-        super(client, config, type, lock);
+    public StatsNettyRefer(Client client, MergeConfig config, Class<T> type, InternalLogger log) {
+        super(client, config, type);
         statsKey = config.identity();
         EagleStatsManager.registerStatsItem(statsKey, log);
     }
 
     @Override
-    public Object request(Request request) {
+    protected Object doRequest(Request request) {
+        long start = ClockSource.MILLINSTANCE.currentTime();
         try {
-            if (lock.tryAcquire()) {
-                long start = ClockSource.MILLINSTANCE.currentTime();
-                try {
-                    activeCnt.incrementAndGet();
-                    return client.request(request);
-                } finally {
-                    lock.release();
-                    EagleStatsManager.incInvoke(statsKey, ReflectUtil.getMethodDesc(request.getMethodName(), request.getParameterDesc()), ClockSource.MILLINSTANCE.elapsedMillis(start));
-                }
-            } else {
-                String warn = String.format("'%s' too much request,more than actives:[%d]", config.identity(), lock.getMaxPermits());
-                logger.warn(warn);
-                throw new EagleFrameException(warn);
-            }
-        } catch (Throwable e) {
-            throw ExceptionUtil.handleException(e);
+            return client.request(request);
         } finally {
-            activeCnt.decrementAndGet();
+            MethodPolicy policy = request.getPolicy();
+            String methodDesc = policy != null ? policy.getMethodDesc() : ReflectUtil.getMethodDesc(request.getMethodName(), request.getParameterDesc());
+            EagleStatsManager.incInvoke(statsKey, methodDesc, ClockSource.MILLINSTANCE.elapsedMillis(start));
         }
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.server;
+
+import eagle.jfaster.org.transport.StandardThreadExecutor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 隔离舱，一个独立的业务线程池，统计被拒绝的请求数，每次统计输出后清零
+ *
+ * Created by fangyanpeng on 2018/4/24.
+ */
+@RequiredArgsConstructor
+public class Bulkhead {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final StandardThreadExecutor executor;
+
+    private final AtomicLong rejectCount = new AtomicLong(0);
+
+    public void onReject() {
+        rejectCount.incrementAndGet();
+    }
+
+    /**
+     * 活跃线程数达到最大线程数的50%或者有被拒绝的请求，用乘法比较避免最大线程数为1时0 >= 0恒成立
+     */
+    public boolean isSaturated() {
+        return executor.getActiveCount() * 2 >= executor.getMaximumPoolSize() || rejectCount.get() > 0;
+    }
+
+    /**
+     * 格式：bulkhead[name] activeCount: %d taskCount: %d queueCount: %d maxThreadCount: %d maxTaskCount: %d rejectCount: %d
+     */
+    public String snapshotAndReset() {
+        return String.format("bulkhead[%s] activeCount: %d taskCount: %d queueCount: %d maxThreadCount: %d maxTaskCount: %d rejectCount: %d",
+                name, executor.getActiveCount(), executor.getSubmittedTasksCount(), executor.getQueue().size(),
+                executor.getMaximumPoolSize(), executor.getMaxSubmittedTaskCount(), rejectCount.getAndSet(0));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+
+package eagle.jfaster.org.server;
+
+import eagle.jfaster.org.config.ConfigEnum;
+import eagle.jfaster.org.config.common.MergeConfig;
+import eagle.jfaster.org.rpc.RemoteInvoke;
+import eagle.jfaster.org.rpc.Request;
+import eagle.jfaster.org.rpc.support.MethodTable;
+import eagle.jfaster.org.transport.StandardThreadExecutor;
+import eagle.jfaster.org.util.ReflectUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 同一个端口上的业务线程池隔离，服务或方法配置了bulkheadMaxThread时使用独立的线程池，
+ * 方法的优先于服务的，都没有配置时使用端口共享的线程池
+ *
+ * Created by fangyanpeng on 2018/4/24.
+ */
+public class Bulkheads {
+
+    @Setter
+    @Getter
+    private Bulkhead shared;
+
+    private final ConcurrentMap<String, ServiceBulkheads> services = new ConcurrentHashMap<>();
+
+    public void register(RemoteInvoke<?> invoke, String hostPort) {
+        MergeConfig config = invoke.getConfig();
+        String interfaceName = config.getInterfaceName();
+        Bulkhead service = create(interfaceName, config, "", hostPort);
+        Map<String, Bulkhead> methods = new HashMap<>();
+        for (Method method : ReflectUtil.getPublicMethod(invoke.getInterface())) {
+            String methodDesc = ReflectUtil.getMethodDesc(method);
+            Bulkhead bulkhead = create(interfaceName + "." + methodDesc, config, methodDesc + ".", hostPort);
+            if (bulkhead != null) {
+                methods.put(methodDesc, bulkhead);
+            }
+        }
+        if (service == null && methods.isEmpty()) {
+            return;
+        }
+        ServiceBulkheads old = services.put(interfaceName, new ServiceBulkheads(service, methods));
+        if (old != null) {
+            old.shutdown();
+        }
+    }
+
+    public Bulkhead select(Request request) {
+        ServiceBulkheads service = services.get(request.getInterfaceName());
+        if (service == null) {
+            return shared;
+        }
+        Bulkhead bulkhead = service.select(request);
+        return bulkhead == null ? shared : bulkhead;
+    }
+
+    /**
+     * 只输出饱和的线程池，都没有饱和时返回null
+     */
+    public String statistic() {
+        StringBuilder builder = new StringBuilder();
+        append(builder, shared);
+        for (ServiceBulkheads service : services.values()) {
+            append(builder, service.service);
+            for (Bulkhead bulkhead : service.methods.values()) {
+                append(builder, bulkhead);
+            }
+        }
+        return builder.length() == 0 ? null : builder.toString();
+    }
+
+    public void shutdown() {
+        if (shared != null) {
+            shared.shutdown();
+        }
+        for (ServiceBulkheads service : services.values()) {
+            service.shutdown();
+        }
+        services.clear();
+    }
+
+    private void append(StringBuilder builder, Bulkhead bulkhead) {
+        if (bulkhead == null || !bulkhead.isSaturated()) {
+            return;
+        }
+        if (builder.length() > 0) {
+            builder.append(' ');
+        }
+        builder.append(bulkhead.snapshotAndReset());
+    }
+
+    /**
+     * 方法级的核心线程数默认等于最大线程数，队列长度依次取方法、服务的配置
+     */
+    private Bulkhead create(String name, MergeConfig config, String prefix, String hostPort) {
+        int maxThread = config.getExtInt(prefix + ConfigEnum.bulkheadMaxThread.getName(), ConfigEnum.bulkheadMaxThread.getIntValue());
+        if (maxThread <= 0) {
+            return null;
+        }
+        int coreThread = config.getExtInt(prefix + ConfigEnum.bulkheadCoreThread.getName(), maxThread);
+        if (coreThread <= 0 || coreThread > maxThread) {
+            coreThread = maxThread;
+        }
+        int queueSize = config.getExtInt(ConfigEnum.bulkheadQueueSize.getName(), ConfigEnum.bulkheadQueueSize.getIntValue());
+        queueSize = config.getExtInt(prefix + ConfigEnum.bulkheadQueueSize.getName(), queueSize);
+        StandardThreadExecutor executor = new StandardThreadExecutor(coreThread, maxThread, queueSize, new DefaultThreadFactory("NettyServer-" + hostPort + "-" + name, true));
+        executor.prestartAllCoreThreads();
+        return new Bulkhead(name, executor);
+    }
+
+    @RequiredArgsConstructor
+    private static class ServiceBulkheads {
+
+        private final Bulkhead service;
+
+        private final Map<String, Bulkhead> methods;
+
+        private Bulkhead select(Request request) {
+            if (methods.isEmpty()) {
+                return service;
+            }
+            MethodTable.MethodEntry entry = MethodTable.get(request.getMethodId());
+            String methodDesc = entry != null ? entry.getMethodDesc() : ReflectUtil.getMethodDesc(request.getMethodName(), request.getParameterDesc());
+            Bulkhead bulkhead = methods.get(methodDesc);
+            return bulkhead == null ? service : bulkhead;
+        }
+
+        private void shutdown() {
+            if (service != null) {
+                service.shutdown();
+            }
+            for (Bulkhead bulkhead : methods.values()) {
+                bulkhead.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 eagle.jfaster.org.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * </p>
+ */
+package eagle.jfaster.org.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 统计请求在业务线程池中的排队耗时、因超过截止时间被丢弃和被调用方取消的请求数，每个统计周期取一次快照并清零
+ *
+ * Created by fangyanpeng on 2018/4/22.
+ */
+public class DispatchCounter {
+
+    private final AtomicLong dispatchCount = new AtomicLong(0);
+
+    private final AtomicLong queueWaitMillis = new AtomicLong(0);
+
+    private final AtomicLong maxQueueWaitMillis = new AtomicLong(0);
+
+    private final AtomicLong expiredCount = new AtomicLong(0);
+
+    private final AtomicLong cancelledCount = new AtomicLong(0);
+
+    public void onDispatch(long waitMillis) {
+        dispatchCount.incrementAndGet();
+        queueWaitMillis.addAndGet(waitMillis);
+        long max = maxQueueWaitMillis.get();
+        while (waitMillis > max && !maxQueueWaitMillis.compareAndSet(max, waitMillis)) {
+            max = maxQueueWaitMillis.get();
+        }
+    }
+
+    public void onExpired() {
+        expiredCount.incrementAndGet();
+    }
+
+    public void onCancelled() {
+        cancelledCount.incrementAndGet();
+    }
+
+    public Snapshot snapshotAndReset() {
+        long count = dispatchCount.getAndSet(0);
+        long wait = queueWaitMillis.getAndSet(0);
+        return new Snapshot(count, count == 0 ? 0 : wait / count, maxQueueWaitMillis.getAndSet(0), expiredCount.getAndSet(0), cancelledCount.getAndSet(0));
+    }
+
+    /**
+     * 一个统计周期内的计数
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0);
+
+        private final long dispatchCount;
+
+        private final long avgQueueWaitMillis;
+
+        private final long maxQueueWaitMillis;
+
+        private final long expiredCount;
+
+        private final long cancelledCount;
+
+        public boolean hasDropped() {
+            return expiredCount > 0 || cancelledCount > 0;
+        }
+
+        /**
+         * 格式：dispatchCount: %d avgQueueWait: %dms maxQueueWait: %dms expiredCount: %d cancelledCount: %d
+         */
+        @Override
+        public String toString() {
+            return String.format("dispatchCount: %d avgQueueWait: %dms maxQueueWait: %dms expiredCount: %d cancelledCount: %d",
+                    dispatchCount, avgQueueWaitMillis, maxQueueWaitMillis, expiredCount, cancelledCount);
+        }
+    }
+}
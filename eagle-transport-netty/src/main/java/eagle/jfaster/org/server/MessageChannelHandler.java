@@ -14,16 +14,17 @@
  * limitations under the License.
  * </p>
  */
-
 package eagle.jfaster.org.server;
 
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
+import eagle.jfaster.org.rpc.support.CancelRequest;
 import eagle.jfaster.org.rpc.support.EagleRequest;
 import eagle.jfaster.org.rpc.support.EagleResponse;
 import eagle.jfaster.org.rpc.Request;
 import eagle.jfaster.org.rpc.Response;
+import eagle.jfaster.org.rpc.support.DeadlineContext;
 import eagle.jfaster.org.rpc.support.TraceContext;
 import eagle.jfaster.org.transport.InvokeRouter;
 import eagle.jfaster.org.transport.StandardThreadExecutor;
@@ -32,49 +33,165 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import lombok.RequiredArgsConstructor;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.RejectedExecutionException;
 
 /**
- * 请求处理类，为了防止业务逻辑阻塞io线程，所以采用线程池处理业务逻辑
+ * 请求处理类，为了防止业务逻辑阻塞io线程，所以采用线程池处理业务逻辑，配置了隔离舱的服务或方法使用各自独立的线程池。
+ * 每个连接上记录还没有处理完的请求，收到取消请求时还在排队的直接从队列移除，已经在执行的中断执行线程
  *
  * Created by fangyanpeng1 on 2017/7/31.
  */
 @RequiredArgsConstructor
-public class MessageChannelHandler extends SimpleChannelInboundHandler<EagleRequest> {
+public class MessageChannelHandler extends SimpleChannelInboundHandler<Object> {
 
     private final static InternalLogger logger = InternalLoggerFactory.getInstance(MessageChannelHandler.class);
 
 
     private final InvokeRouter<Request, Response> invokeRouter;
 
-    private final StandardThreadExecutor threadExecutor;
+    private final Bulkheads bulkheads;
+
+    private final DispatchCounter dispatchCounter;
+
+    private final ConcurrentMap<Integer, InvokeTask> tasks = new ConcurrentHashMap<>();
 
     @Override
-    protected void channelRead0(final ChannelHandlerContext ctx, final EagleRequest request) throws Exception {
+    protected void channelRead0(final ChannelHandlerContext ctx, final Object message) throws Exception {
+        if (message instanceof CancelRequest) {
+            InvokeTask task = tasks.remove(((CancelRequest) message).getOpaque());
+            if (task != null && task.cancel()) {
+                dispatchCounter.onCancelled();
+            }
+            return;
+        }
+        EagleRequest request = (EagleRequest) message;
+        Bulkhead bulkhead = bulkheads.select(request);
+        StandardThreadExecutor threadExecutor = bulkhead.getExecutor();
+        InvokeTask task = new InvokeTask(ctx, request, System.currentTimeMillis(), threadExecutor);
+        tasks.put(request.getOpaque(), task);
         // 使用线程池方式处理
         try {
-            threadExecutor.execute(new Runnable() {
-                @Override
-                public void run() {
-                    Map<String, String> attachments = request.getAttachments();
-                    if (attachments != null) {
-                        TraceContext.setTraceId(attachments.get(TraceContext.TRACE_KEY));
-                    }
-                    EagleResponse response = (EagleResponse) invokeRouter.routeAndInvoke(request);
-                    TraceContext.clear();
-                    response.setOpaque(request.getOpaque());
-                    response.setNeedCompress(request.isNeedCompress());
-                    ctx.writeAndFlush(response);
-                }
-            });
+            threadExecutor.execute(task);
         } catch (RejectedExecutionException e) {
+            tasks.remove(request.getOpaque(), task);
+            bulkhead.onReject();
             EagleResponse response = new EagleResponse();
             response.setOpaque(request.getOpaque());
             response.setException(new EagleFrameException("process thread pool is full, reject '%s'", e.getMessage()));
             ctx.writeAndFlush(response);
-            logger.info(String.format("process thread pool is full, reject, active='%d' poolSize='%d' corePoolSize='%d' maxPoolSize='%d' taskCount='%d'",
-                    threadExecutor.getActiveCount(), threadExecutor.getPoolSize(),
+            logger.info(String.format("process thread pool '%s' is full, reject, active='%d' poolSize='%d' corePoolSize='%d' maxPoolSize='%d' taskCount='%d'",
+                    bulkhead.getName(), threadExecutor.getActiveCount(), threadExecutor.getPoolSize(),
                     threadExecutor.getCorePoolSize(), threadExecutor.getMaximumPoolSize(), threadExecutor.getTaskCount()));
         }
     }
+
+    @RequiredArgsConstructor
+    private class InvokeTask implements Runnable {
+
+        private static final int QUEUED = 0;
+
+        private static final int RUNNING = 1;
+
+        private static final int DONE = 2;
+
+        private static final int CANCELLED = 3;
+
+        private final ChannelHandlerContext ctx;
+
+        private final EagleRequest request;
+
+        private final long received;
+
+        private final StandardThreadExecutor threadExecutor;
+
+        //状态变化和中断都在同一个锁内，保证不会中断到执行线程后续的其他任务
+        private int state = QUEUED;
+
+        private Thread runner;
+
+        @Override
+        public void run() {
+            if (!start()) {
+                return;
+            }
+            try {
+                Map<String, String> attachments = request.getAttachments();
+                long now = System.currentTimeMillis();
+                dispatchCounter.onDispatch(now - received);
+                long deadline = DeadlineContext.parseDeadline(attachments, received);
+                //排队期间调用方已经超时，不再处理也不返回
+                if (deadline > 0 && now >= deadline) {
+                    dispatchCounter.onExpired();
+                    return;
+                }
+                if (attachments != null) {
+                    TraceContext.setTraceId(attachments.get(TraceContext.TRACE_KEY));
+                }
+                DeadlineContext.setDeadline(deadline);
+                EagleResponse response;
+                try {
+                    response = (EagleResponse) invokeRouter.routeAndInvoke(request);
+                } finally {
+                    DeadlineContext.clear();
+                    TraceContext.clear();
+                }
+                //执行期间被取消，调用方已经不再等待结果
+                if (!finish()) {
+                    return;
+                }
+                response.setOpaque(request.getOpaque());
+                response.setNeedCompress(request.isNeedCompress());
+                ctx.writeAndFlush(response);
+            } finally {
+                finish();
+                tasks.remove(request.getOpaque(), this);
+            }
+        }
+
+        private synchronized boolean start() {
+            if (state != QUEUED) {
+                return false;
+            }
+            state = RUNNING;
+            runner = Thread.currentThread();
+            return true;
+        }
+
+        /**
+         * 结束执行，被取消过时清除中断状态并返回false
+         */
+        private synchronized boolean finish() {
+            if (state == RUNNING) {
+                state = DONE;
+                runner = null;
+                return true;
+            }
+            if (state == CANCELLED && runner != null) {
+                runner = null;
+                Thread.interrupted();
+            }
+            return false;
+        }
+
+        /**
+         * 还在排队的从线程池队列移除，正在执行的中断执行线程
+         */
+        private boolean cancel() {
+            synchronized (this) {
+                if (state == RUNNING) {
+                    state = CANCELLED;
+                    runner.interrupt();
+                    return true;
+                }
+                if (state != QUEUED) {
+                    return false;
+                }
+                state = CANCELLED;
+            }
+            threadExecutor.remove(this);
+            return true;
+        }
+    }
 }
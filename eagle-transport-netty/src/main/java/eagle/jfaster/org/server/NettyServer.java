@@ -29,6 +29,7 @@ import static eagle.jfaster.org.constant.EagleConstants.*;
 import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
+import eagle.jfaster.org.rpc.RemoteInvoke;
 import eagle.jfaster.org.rpc.Request;
 import eagle.jfaster.org.rpc.Response;
 import eagle.jfaster.org.spi.SpiClassLoader;
@@ -48,14 +49,16 @@ import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 import java.net.InetSocketAddress;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * 一个端口对应一个netty server
+ * 一个端口对应一个netty server，端口上的服务默认共享一个业务线程池，也可以按服务或方法配置独立的线程池
  *
  * Created by fangyanpeng1 on 2017/7/31.
  */
@@ -73,6 +76,14 @@ public class NettyServer implements Server, StatisticCallback {
 
     private StandardThreadExecutor standardThreadExecutor;
 
+    private final DispatchCounter dispatchCounter = new DispatchCounter();
+
+    //最近一个统计周期的派发计数，不管是否打印都每个周期更新
+    @Getter
+    private volatile DispatchCounter.Snapshot dispatchStats = DispatchCounter.Snapshot.EMPTY;
+
+    private final Bulkheads bulkheads = new Bulkheads();
+
     private AtomicBoolean init = new AtomicBoolean(false);
 
     private ServerBootstrap bootstrap;
@@ -102,7 +113,8 @@ public class NettyServer implements Server, StatisticCallback {
                 groupAccept.shutdownGracefully();
                 groupSelector.shutdownGracefully();
                 connectManage.close();
-                standardThreadExecutor.shutdownNow();
+                bulkheads.shutdown();
+                invokeRouter.close();
             } catch (Exception e) {
                 logger.error("Error shutdown server", e);
             }
@@ -118,6 +130,7 @@ public class NettyServer implements Server, StatisticCallback {
         int selectWorker = config.getExtInt(ConfigEnum.selectThreadSize.getName(), ConfigEnum.selectThreadSize.getIntValue());
         standardThreadExecutor = new StandardThreadExecutor(coreWorker, maxWorker, workerQueueSize, new DefaultThreadFactory("NettyServer-" + config.hostPort(), true));
         standardThreadExecutor.prestartAllCoreThreads();
+        bulkheads.setShared(new Bulkhead("shared", standardThreadExecutor));
         connectManage = new NettyConnectManage(maxConnection);
         boolean useNative = RemotingUtil.isLinuxPlatform() && config.getExtBoolean(ConfigEnum.useNative.getName(), ConfigEnum.useNative.isBooleanValue());
         if (useNative) {
@@ -129,6 +142,7 @@ public class NettyServer implements Server, StatisticCallback {
         }
         final Codec codec = SpiClassLoader.getClassLoader(Codec.class).getExtension(config.getExt(ConfigEnum.codec.getName(), ConfigEnum.codec.getValue()));
         final Serialization serialization = SpiClassLoader.getClassLoader(Serialization.class).getExtension(config.getExt(ConfigEnum.serialization.getName(), ConfigEnum.serialization.getValue()));
+        final int flushConsolidation = config.getExtInt(ConfigEnum.flushConsolidation.getName(), ConfigEnum.flushConsolidation.getIntValue());
         bootstrap = new ServerBootstrap();
         bootstrap.group(groupAccept, groupSelector).channel(useNative ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
                 .option(ChannelOption.SO_KEEPALIVE, false)
@@ -141,25 +155,40 @@ public class NettyServer implements Server, StatisticCallback {
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel sch) throws Exception {
-                        sch.pipeline().addLast(connectManage)
+                        sch.pipeline().addLast(connectManage);
+                        if (flushConsolidation > 0) {
+                            //业务线程写回的响应在同一个eventLoop周期内合并flush
+                            sch.pipeline().addLast(new FlushConsolidationHandler(flushConsolidation, true));
+                        }
+                        sch.pipeline()
                                 .addLast(new NettyEncoder(codec, serialization))
                                 .addLast(new NettyDecorder(maxContentLen, codec, serialization))
-                                .addLast(new MessageChannelHandler(invokeRouter, standardThreadExecutor));
+                                .addLast(new MessageChannelHandler(invokeRouter, bulkheads, dispatchCounter));
                     }
                 });
     }
 
+    /**
+     * 服务或方法配置了独立线程池时注册到该端口
+     */
+    public void addBulkhead(RemoteInvoke<?> invoke) {
+        bulkheads.register(invoke, config.hostPort());
+    }
+
     @Override
     public String statistic() {
-        int maxWorkerThread = config.getExtInt(ConfigEnum.maxWorkerThread.getName(), ConfigEnum.maxWorkerThread.getIntValue());
-        //当活跃线程数达到最大线程数的50%时才打印server的统计信息
-        if (standardThreadExecutor.getActiveCount() < maxWorkerThread * 1 / 2) {
+        //当有线程池的活跃线程数达到最大线程数的50%、拒绝过请求或者有过期、取消丢弃的请求时才打印server的统计信息
+        DispatchCounter.Snapshot dispatch = dispatchCounter.snapshotAndReset();
+        dispatchStats = dispatch;
+        String bulkheadStats = bulkheads.statistic();
+        if (bulkheadStats == null && !dispatch.hasDropped()) {
             return null;
         }
-        return String.format(
-                "[%s://%s] connectionCount: %s taskCount: %s queueCount: %s maxThreadCount: %s maxTaskCount: %s",
+        String stats = String.format(
+                "[%s://%s] connectionCount: %s taskCount: %s queueCount: %s maxThreadCount: %s maxTaskCount: %s %s",
                 config.getProtocol(), config.hostPort(), connectManage.getChannels().size(), standardThreadExecutor.getSubmittedTasksCount(),
                 standardThreadExecutor.getQueue().size(), standardThreadExecutor.getMaximumPoolSize(),
-                standardThreadExecutor.getMaxSubmittedTaskCount());
+                standardThreadExecutor.getMaxSubmittedTaskCount(), dispatch);
+        return bulkheadStats == null ? stats : stats + " " + bulkheadStats;
     }
 }
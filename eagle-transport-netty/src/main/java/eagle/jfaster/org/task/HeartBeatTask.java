@@ -18,7 +18,7 @@
 package eagle.jfaster.org.task;
 
 import eagle.jfaster.org.client.NettyClient;
-import eagle.jfaster.org.client.pool.NettySharedConnPool;
+import eagle.jfaster.org.client.pool.NettyConnPool;
 import eagle.jfaster.org.config.ConfigEnum;
 import eagle.jfaster.org.config.common.MergeConfig;
 import eagle.jfaster.org.spi.SpiClassLoader;
@@ -33,13 +33,14 @@ public class HeartBeatTask implements Runnable {
 
     private final MergeConfig config;
 
-    private final NettySharedConnPool connPool;
+    private final NettyConnPool connPool;
 
     private final NettyClient client;
 
     @Override
     public void run() {
         try {
+            client.expireCallBacks();
             HeartBeatFactory heartBeatFactory = SpiClassLoader.getClassLoader(HeartBeatFactory.class).getExtension(config.getExt(ConfigEnum.heartbeatFactory.getName(), ConfigEnum.heartbeatFactory.getValue()));
             if (!client.getStat().get() && connPool.getTotalConnections() == 0) {
                 client.request(heartBeatFactory.createRequest());
@@ -19,44 +19,50 @@ package eagle.jfaster.org.task;
 
 import eagle.jfaster.org.client.NettyClient;
 import eagle.jfaster.org.client.NettyResponseFuture;
-import eagle.jfaster.org.exception.EagleFrameException;
 import eagle.jfaster.org.exception.EagleTimeoutException;
 import eagle.jfaster.org.logging.InternalLogger;
 import eagle.jfaster.org.logging.InternalLoggerFactory;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
 import lombok.RequiredArgsConstructor;
 
-import java.util.Iterator;
-import java.util.Map;
-
 /**
+ * 单个请求的超时任务，由时间轮在到期时触发，只处理到期的请求
+ *
  * Created by fangyanpeng on 2017/8/22.
  */
 
 @RequiredArgsConstructor
-public class TimeoutMonitorTask implements Runnable {
+public class TimeoutMonitorTask implements TimerTask {
 
     private final static InternalLogger logger = InternalLoggerFactory.getInstance(TimeoutMonitorTask.class);
 
     private final NettyClient client;
 
+    private final NettyResponseFuture rep;
+
     @Override
-    public void run() {
-        Iterator<Map.Entry<Integer, NettyResponseFuture>> it = client.getCallbackMap().entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Integer, NettyResponseFuture> next = it.next();
-            NettyResponseFuture rep = next.getValue();
-            if ((rep.getBeginTimestamp() + rep.getTimeoutMillis() + 300) <= System.currentTimeMillis()) {
-                if (rep.getCallBack() == null) {
-                    rep.onFail(new EagleTimeoutException("%s request timeout，requestid:%d,timeout:%d ms", client
-                            .getConfig().getInterfaceName(), rep.getOpaque(), rep.getTimeoutMillis()));
-                } else {
-                    rep.setException(new EagleTimeoutException("%s request timeout，requestid:%d,timeout:%d ms",
-                            client.getConfig().getInterfaceName(), rep.getOpaque(), rep.getTimeoutMillis()));
-                    client.executeInvokeCallback(rep);
-                }
-                it.remove();
-                logger.warn("remove timeout request, interfaceName: " + client.getConfig().getInterfaceName());
-            }
+    public void run(Timeout timeout) {
+        //已经收到响应或者已被移除
+        if (timeout.isCancelled() || !client.getCallbackTable().remove(rep.getOpaque(), rep)) {
+            return;
+        }
+        expire(client, rep);
+    }
+
+    /**
+     * 通知已经从在途请求表中移除的超时请求
+     */
+    public static void expire(NettyClient client, NettyResponseFuture rep) {
+        if (rep.getCallBack() == null) {
+            rep.onFail(new EagleTimeoutException("%s request timeout，requestid:%d,timeout:%d ms", client
+                    .getConfig().getInterfaceName(), rep.getOpaque(), rep.getTimeoutMillis()));
+        } else {
+            rep.setException(new EagleTimeoutException("%s request timeout，requestid:%d,timeout:%d ms",
+                    client.getConfig().getInterfaceName(), rep.getOpaque(), rep.getTimeoutMillis()));
+            client.executeInvokeCallback(rep);
         }
+        client.sendCancel(rep);
+        logger.warn("remove timeout request, interfaceName: " + client.getConfig().getInterfaceName());
     }
 }